@@ -0,0 +1,24 @@
+package com.herbet.ffm.benchmark;
+
+import com.herbet.ffm.Application;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Application context used by benchmarks, with embedded H2 of application and without web server.
+ */
+public final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    /**
+     * @param properties additional properties in form name=value
+     * @return started context
+     */
+    public static ConfigurableApplicationContext start(String... properties) {
+        return new SpringApplicationBuilder(Application.class).web(false).properties("spring.main.banner-mode=off",
+                                                                                      "logging.level.root=WARN")
+                .properties(properties).run();
+    }
+}
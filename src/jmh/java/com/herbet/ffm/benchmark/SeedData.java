@@ -0,0 +1,136 @@
+package com.herbet.ffm.benchmark;
+
+import com.herbet.ffm.exception.ApplicationException;
+import com.herbet.ffm.parser.CreditLimitParser;
+import com.herbet.ffm.parser.CsvCustomerTokenizer;
+import com.herbet.ffm.parser.CustomerRecord;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generator of benchmark input. Customers of csv test file are repeated, street of every line is numbered so that
+ * generated lines use given number of different addresses. Lines are generated in csv and prn format of application.
+ */
+public final class SeedData {
+
+    public static final Charset CHARSET = Charset.forName("Cp1252");
+
+    // benchmarks are run from project directory
+    private static final Path SEED_FILE = Paths.get("src/test/resources/testfiles/Workbook2.csv");
+
+    private static final String CSV_HEADER = "Name,Address,Postcode,Phone,Credit Limit,Birthday";
+
+    private static final String PRN_HEADER =
+            "Name            Address               Postcode Phone         Credit Limit Birthday";
+
+    private static final DateTimeFormatter CSV_DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private static final DateTimeFormatter PRN_DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private SeedData() {
+    }
+
+    /**
+     * @param count number of lines
+     * @param addresses number of different addresses used by lines
+     * @return lines in csv format
+     */
+    public static List<String> csvLines(int count, int addresses) {
+        List<CustomerRecord> seeds = seedRecords();
+        List<String> lines = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            CustomerRecord seed = seeds.get(i % seeds.size());
+            lines.add("\"" + seed.getLastName() + ", " + seed.getFirstName() + "\"," + street(seed, i % addresses) +
+                              "," + seed.getPostcode() + "," + seed.getPhone() + "," +
+                              BigDecimal.valueOf(creditLimitCents(seed), 2).toPlainString() + "," +
+                              birthday(seed).format(CSV_DATE));
+        }
+
+        return lines;
+    }
+
+    /**
+     * @param count number of lines
+     * @param addresses number of different addresses used by lines
+     * @return lines in prn format (fixed column widths)
+     */
+    public static List<String> prnLines(int count, int addresses) {
+        List<CustomerRecord> seeds = seedRecords();
+        List<String> lines = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            CustomerRecord seed = seeds.get(i % seeds.size());
+            lines.add(StringUtils.rightPad(seed.getLastName() + ", " + seed.getFirstName(), 16) +
+                              StringUtils.rightPad(street(seed, i % addresses), 22) +
+                              StringUtils.rightPad(seed.getPostcode(), 9) + StringUtils.rightPad(seed.getPhone(), 14) +
+                              StringUtils.leftPad(String.valueOf(creditLimitCents(seed)), 13) + " " +
+                              birthday(seed).format(PRN_DATE));
+        }
+
+        return lines;
+    }
+
+    /**
+     * Writes lines with header of given format to temporary file, removed when JVM exits.
+     *
+     * @param lines lines with customer data
+     * @param format csv or prn
+     * @return path of written file
+     */
+    public static Path writeFile(List<String> lines, String format) {
+        try {
+            Path path = Files.createTempFile("benchmark", "." + format);
+            path.toFile().deleteOnExit();
+
+            List<String> content = new ArrayList<>(lines.size() + 1);
+            content.add(format.equals("csv") ? CSV_HEADER : PRN_HEADER);
+            content.addAll(lines);
+            Files.write(path, content, CHARSET);
+
+            return path;
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    private static List<CustomerRecord> seedRecords() {
+        try {
+            List<String> lines = Files.readAllLines(SEED_FILE, CHARSET);
+            List<CustomerRecord> records = new ArrayList<>();
+            // skip header
+            for (String line : lines.subList(1, lines.size())) {
+                records.add(CsvCustomerTokenizer.tokenize(line));
+            }
+            return records;
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        } catch (ApplicationException ae) {
+            throw new IllegalStateException("Incorrect seed file " + SEED_FILE, ae);
+        }
+    }
+
+    // street numbered with address index, short enough for prn column
+    private static String street(CustomerRecord seed, int address) {
+        return StringUtils.left(seed.getStreet(), 15) + " " + address;
+    }
+
+    private static long creditLimitCents(CustomerRecord seed) {
+        return CreditLimitParser.parseDecimal(seed.getLine(), seed.getCreditLimitStart(), seed.getCreditLimitEnd());
+    }
+
+    private static LocalDate birthday(CustomerRecord seed) {
+        return LocalDate.parse(seed.getBirthday(), CSV_DATE);
+    }
+}
@@ -0,0 +1,106 @@
+package com.herbet.ffm.parser;
+
+import com.herbet.ffm.benchmark.SeedData;
+import com.herbet.ffm.exception.ApplicationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Date;
+import java.text.ParseException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of splitting lines into fields and of parsing Credit Limit and Birthday columns, per line. Run with
+ * "-prof gc" to see allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineParsingBenchmark {
+
+    private static final int LINES = 1024;
+
+    private final PrnLayout prnLayout = new PrnLayout(0, 16, 16, 38, 38, 47, 47, 61, 61, 74, 74, 83);
+
+    private final BirthdayParser csvBirthdayParser = new BirthdayParser("dd/MM/yyyy");
+
+    private final BirthdayParser prnBirthdayParser = new BirthdayParser("yyyyMMdd");
+
+    private String[] csvLines;
+
+    private String[] prnLines;
+
+    private CustomerRecord[] csvRecords;
+
+    private CustomerRecord[] prnRecords;
+
+    private int index;
+
+    @Setup
+    public void generateLines() throws ApplicationException {
+        List<String> csv = SeedData.csvLines(LINES, LINES);
+        List<String> prn = SeedData.prnLines(LINES, LINES);
+
+        csvLines = csv.toArray(new String[LINES]);
+        prnLines = prn.toArray(new String[LINES]);
+        csvRecords = new CustomerRecord[LINES];
+        prnRecords = new CustomerRecord[LINES];
+        for (int i = 0; i < LINES; i++) {
+            csvRecords[i] = CsvCustomerTokenizer.tokenize(csvLines[i]);
+            prnRecords[i] = prnLayout.extract(prnLines[i]);
+        }
+    }
+
+    @Benchmark
+    public CustomerRecord tokenizeCsv() throws ApplicationException {
+        return CsvCustomerTokenizer.tokenize(csvLines[next()]);
+    }
+
+    @Benchmark
+    public CustomerRecord extractPrn() throws ApplicationException {
+        return prnLayout.extract(prnLines[next()]);
+    }
+
+    @Benchmark
+    public long parseCsvCreditLimit() {
+        CustomerRecord record = csvRecords[next()];
+        return CreditLimitParser.parseDecimal(record.getLine(), record.getCreditLimitStart(),
+                                              record.getCreditLimitEnd());
+    }
+
+    @Benchmark
+    public long parsePrnCreditLimit() {
+        CustomerRecord record = prnRecords[next()];
+        return CreditLimitParser.parseImpliedDecimals(record.getLine(), record.getCreditLimitStart(),
+                                                      record.getCreditLimitEnd());
+    }
+
+    @Benchmark
+    public Date parseCsvBirthday() throws ParseException {
+        CustomerRecord record = csvRecords[next()];
+        return csvBirthdayParser.parse(record.getLine(), record.getBirthdayStart(), record.getBirthdayEnd());
+    }
+
+    @Benchmark
+    public Date parsePrnBirthday() throws ParseException {
+        CustomerRecord record = prnRecords[next()];
+        return prnBirthdayParser.parse(record.getLine(), record.getBirthdayStart(), record.getBirthdayEnd());
+    }
+
+    private int next() {
+        index = (index + 1) & (LINES - 1);
+        return index;
+    }
+}
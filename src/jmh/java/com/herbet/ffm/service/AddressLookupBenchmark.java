@@ -0,0 +1,89 @@
+package com.herbet.ffm.service;
+
+import com.herbet.ffm.benchmark.BenchmarkContext;
+import com.herbet.ffm.entity.Address;
+import com.herbet.ffm.repository.AddressRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of looking up address with the same location in DB, for existing and new locations and different sizes
+ * of address table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AddressLookupBenchmark {
+
+    private static final int LOOKUPS = 1024;
+
+    @Param({"1000", "100000"})
+    private int storedAddresses;
+
+    private ConfigurableApplicationContext context;
+
+    private AddressCrudService addressCrudService;
+
+    private Address[] existing;
+
+    private Address[] missing;
+
+    private int index;
+
+    @Setup
+    public void storeAddresses() {
+        context = BenchmarkContext.start();
+        addressCrudService = context.getBean(AddressCrudService.class);
+
+        List<Address> addresses = new ArrayList<>(storedAddresses);
+        for (int i = 0; i < storedAddresses; i++) {
+            addresses.add(new Address("Stored street " + i, "1000 AA"));
+        }
+        context.getBean(AddressRepository.class).save(addresses);
+
+        existing = new Address[LOOKUPS];
+        missing = new Address[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            existing[i] = new Address("Stored street " + (i * 7919 % storedAddresses), "1000 AA");
+            missing[i] = new Address("Missing street " + i, "1000 AA");
+        }
+    }
+
+    @TearDown
+    public void closeContext() {
+        context.close();
+    }
+
+    @Benchmark
+    public Address findExistingAddress() {
+        return addressCrudService.findSameAddress(existing[next()]);
+    }
+
+    @Benchmark
+    public Address findMissingAddress() {
+        return addressCrudService.findSameAddress(missing[next()]);
+    }
+
+    private int next() {
+        index = (index + 1) & (LOOKUPS - 1);
+        return index;
+    }
+}
@@ -0,0 +1,77 @@
+package com.herbet.ffm.service;
+
+import com.herbet.ffm.benchmark.BenchmarkContext;
+import com.herbet.ffm.benchmark.SeedData;
+import com.herbet.ffm.entity.Customer;
+import com.herbet.ffm.exception.ApplicationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of creating customer (with address) from single line, by parser used by uploads of given format. Run
+ * with "-prof gc" to see allocation rate per line.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomerLineBenchmark {
+
+    private static final int LINES = 1024;
+
+    @Param({"csv", "prn"})
+    private String format;
+
+    private ConfigurableApplicationContext context;
+
+    private CustomerLineParser parser;
+
+    private String[] lines;
+
+    @Setup
+    public void createParser() {
+        context = BenchmarkContext.start();
+        parser = context.getBean(UploadCustomersService.class).lineParser(format);
+
+        List<String> generated = format.equals("csv") ? SeedData.csvLines(LINES, LINES)
+                                                      : SeedData.prnLines(LINES, LINES);
+        lines = generated.toArray(new String[LINES]);
+    }
+
+    @TearDown
+    public void closeContext() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class LineIndex {
+
+        private int index;
+
+        int next() {
+            index = (index + 1) & (LINES - 1);
+            return index;
+        }
+    }
+
+    @Benchmark
+    public Customer parseLine(LineIndex lineIndex) throws ApplicationException {
+        return parser.parse(lines[lineIndex.next()], "benchmark." + format);
+    }
+}
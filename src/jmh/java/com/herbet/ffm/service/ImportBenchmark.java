@@ -0,0 +1,96 @@
+package com.herbet.ffm.service;
+
+import com.herbet.ffm.benchmark.BenchmarkContext;
+import com.herbet.ffm.benchmark.SeedData;
+import com.herbet.ffm.entity.Address;
+import com.herbet.ffm.exception.ApplicationException;
+import com.herbet.ffm.repository.AddressRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of uploading whole file into embedded H2, for different sizes of file, numbers of addresses used by file and
+ * numbers of other addresses already stored in DB. Every measured upload starts with the same content of DB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ImportBenchmark {
+
+    @Param({"csv", "prn"})
+    private String format;
+
+    @Param({"10000", "100000"})
+    private int lines;
+
+    // different addresses used by lines of file
+    @Param({"100", "10000"})
+    private int fileAddresses;
+
+    // addresses stored in DB before upload, not used by file
+    @Param({"0", "100000"})
+    private int storedAddresses;
+
+    private ConfigurableApplicationContext context;
+
+    private UploadCustomersService uploadCustomersService;
+
+    private Path file;
+
+    private int uploads;
+
+    @Setup
+    public void createFile() {
+        context = BenchmarkContext.start();
+        uploadCustomersService = context.getBean(UploadCustomersService.class);
+
+        file = SeedData.writeFile(format.equals("csv") ? SeedData.csvLines(lines, fileAddresses)
+                                                       : SeedData.prnLines(lines, fileAddresses), format);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetDatabase() {
+        context.getBean(CustomerCrudService.class).deleteAll();
+        context.getBean(AddressCrudService.class).deleteAll();
+
+        List<Address> addresses = new ArrayList<>(storedAddresses);
+        for (int i = 0; i < storedAddresses; i++) {
+            addresses.add(new Address("Stored street " + i, "0000 ZZ"));
+        }
+        context.getBean(AddressRepository.class).save(addresses);
+    }
+
+    @TearDown
+    public void closeContext() {
+        context.close();
+    }
+
+    @Benchmark
+    public long uploadFile() throws IOException, ApplicationException {
+        ImportProgress progress = new ImportProgress();
+        // every upload has its own source, so rows of previous uploads are not skipped
+        uploadCustomersService.uploadCustomersFromFile(file, "benchmark" + (uploads++) + "." + format, progress);
+        return progress.getRowsPersisted();
+    }
+}
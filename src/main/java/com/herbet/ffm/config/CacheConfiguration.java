@@ -0,0 +1,67 @@
+package com.herbet.ffm.config;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Configuration of in-process caches. Size and expiration of cached customers are defined in application.properties.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfiguration {
+
+    public static final String CUSTOMERS_CACHE = "customers";
+
+    @Value("${customers.cache.spec}")
+    private String customersCacheSpec;
+
+    /**
+     * Caffeine caches wrapped so that puts and evictions done in transaction are applied after it is committed,
+     * then data of uncommitted or rolled back upload is never visible in cache.
+     */
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(CUSTOMERS_CACHE);
+        cacheManager.setCacheSpecification(customersCacheSpec);
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+
+    /**
+     * Hit, miss and eviction counts of caches, exposed by metrics endpoint.
+     */
+    @Bean
+    public PublicMetrics cacheCountsMetrics(CacheManager cacheManager) {
+        return () -> {
+            Collection<Metric<?>> metrics = new ArrayList<>();
+            for (String name : cacheManager.getCacheNames()) {
+                Cache cache = cacheManager.getCache(name);
+                if (cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache) {
+                    CacheStats stats = ((com.github.benmanes.caffeine.cache.Cache<?, ?>) cache.getNativeCache()).stats();
+                    metrics.addAll(counts(name, stats));
+                }
+            }
+            return metrics;
+        };
+    }
+
+    private static List<Metric<?>> counts(String cacheName, CacheStats stats) {
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("cache." + cacheName + ".hits", stats.hitCount()));
+        metrics.add(new Metric<>("cache." + cacheName + ".misses", stats.missCount()));
+        metrics.add(new Metric<>("cache." + cacheName + ".evictions", stats.evictionCount()));
+        return metrics;
+    }
+}
@@ -0,0 +1,84 @@
+package com.herbet.ffm.config;
+
+import com.herbet.ffm.parser.BirthdayParser;
+import com.herbet.ffm.parser.PrnLayout;
+import com.herbet.ffm.parser.PrnLayoutDetector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration of formats of uploaded files. Date formats and column offsets of prn file are defined in
+ * application.properties. Column offsets are used for exported files and for uploaded files which header has no
+ * labels of all columns.
+ */
+@Configuration
+public class FileFormatConfiguration {
+
+    @Value("${csv.format.date}")
+    private String csvDateFormat;
+
+    @Value("${prn.format.date}")
+    private String prnDateFormat;
+
+    @Value("${prn.format.name.start}")
+    private Integer prnNameStart;
+
+    @Value("${prn.format.name.end}")
+    private Integer prnNameEnd;
+
+    @Value("${prn.format.address.start}")
+    private Integer prnAddressStart;
+
+    @Value("${prn.format.address.end}")
+    private Integer prnAddressEnd;
+
+    @Value("${prn.format.postcode.start}")
+    private Integer prnPostcodeStart;
+
+    @Value("${prn.format.postcode.end}")
+    private Integer prnPostcodeEnd;
+
+    @Value("${prn.format.phone.start}")
+    private Integer prnPhoneStart;
+
+    @Value("${prn.format.phone.end}")
+    private Integer prnPhoneEnd;
+
+    @Value("${prn.format.credit.limit.start}")
+    private Integer prnCreditLimitStart;
+
+    @Value("${prn.format.credit.limit.end}")
+    private Integer prnCreditLimitEnd;
+
+    @Value("${prn.format.birthday.start}")
+    private Integer prnBirthdayStart;
+
+    @Value("${prn.format.birthday.end}")
+    private Integer prnBirthdayEnd;
+
+    @Bean
+    public BirthdayParser csvBirthdayParser() {
+        return new BirthdayParser(csvDateFormat);
+    }
+
+    @Bean
+    public BirthdayParser prnBirthdayParser() {
+        return new BirthdayParser(prnDateFormat);
+    }
+
+    @Bean
+    public PrnLayout prnLayout() {
+        return new PrnLayout(prnNameStart, prnNameEnd, prnAddressStart, prnAddressEnd, prnPostcodeStart,
+                             prnPostcodeEnd, prnPhoneStart, prnPhoneEnd, prnCreditLimitStart, prnCreditLimitEnd,
+                             prnBirthdayStart, prnBirthdayEnd);
+    }
+
+    /**
+     * Layouts of uploaded prn files derived from their headers, so widened columns are read correctly.
+     */
+    @Bean
+    public PrnLayoutDetector prnLayoutDetector() {
+        return new PrnLayoutDetector(prnLayout());
+    }
+}
@@ -0,0 +1,130 @@
+package com.herbet.ffm.control;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.herbet.ffm.dto.CreditLimitStatistics;
+import com.herbet.ffm.dto.CustomerSearch;
+import com.herbet.ffm.dto.CustomerView;
+import com.herbet.ffm.entity.Address;
+import com.herbet.ffm.entity.Customer;
+import com.herbet.ffm.service.AddressCrudService;
+import com.herbet.ffm.service.AddressPage;
+import com.herbet.ffm.service.CustomerCrudService;
+import com.herbet.ffm.service.CustomerExportService;
+import com.herbet.ffm.service.CustomerPage;
+import com.herbet.ffm.service.CustomerStatisticsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.List;
+
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * JSON API over customers and addresses. Lists are paged by seeking id of last (or first) record of neighbouring page.
+ */
+@RestController
+@RequestMapping(value = "/api", produces = MediaType.APPLICATION_JSON_VALUE)
+public class ApiController {
+
+    @Autowired
+    private CustomerCrudService customerCrudService;
+
+    @Autowired
+    private AddressCrudService addressCrudService;
+
+    @Autowired
+    private CustomerExportService customerExportService;
+
+    @Autowired
+    private CustomerStatisticsService customerStatisticsService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${customers.page.size}")
+    private int defaultPageSize;
+
+    @Value("${api.page.max.size}")
+    private int maxPageSize;
+
+    @GetMapping("/customers")
+    public CustomerPage customers(@RequestParam(required = false) Long after,
+                                  @RequestParam(required = false) Long before,
+                                  @RequestParam(required = false) Integer size) {
+        int pageSize = pageSize(size);
+        if (before != null) {
+            return customerCrudService.findPageBefore(before, pageSize);
+        }
+        return customerCrudService.findPageAfter(after != null ? after : 0, pageSize);
+    }
+
+    @GetMapping("/customers/{id}")
+    public ResponseEntity<CustomerView> customer(@PathVariable long id) {
+        Customer customer = customerCrudService.findOne(id);
+        return customer != null ? ResponseEntity.ok(CustomerView.of(customer)) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Customers found by optional criteria: lastName (prefix), postcode, birthdayFrom, birthdayTo, creditLimitFrom,
+     * creditLimitTo, sorted by sort (ID, LAST_NAME, BIRTHDAY, CREDIT_LIMIT) and descending, at most limit of them.
+     */
+    @GetMapping("/customers/search")
+    public List<CustomerView> searchCustomers(CustomerSearch search) {
+        return customerCrudService.search(search, pageSize(search.getLimit()));
+    }
+
+    /**
+     * All customers as one JSON array, written while they are read from DB.
+     */
+    @GetMapping("/customers/all")
+    public void allCustomers(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            customerExportService.exportJson(generator);
+        }
+    }
+
+    @GetMapping("/addresses")
+    public AddressPage addresses(@RequestParam(required = false) Long after,
+                                 @RequestParam(required = false) Integer size) {
+        return addressCrudService.findPageAfter(after != null ? after : 0, pageSize(size));
+    }
+
+    @GetMapping("/addresses/{id}")
+    public ResponseEntity<Address> address(@PathVariable long id) {
+        Address address = addressCrudService.findOne(id);
+        return address != null ? ResponseEntity.ok(address) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Number of customers and total, average, min and max credit limit for every source of customers.
+     */
+    @GetMapping("/statistics/sources")
+    public List<CreditLimitStatistics> statisticsBySource() {
+        return customerStatisticsService.findBySource();
+    }
+
+    /**
+     * Number of customers and total, average, min and max credit limit for every postcode of addresses.
+     */
+    @GetMapping("/statistics/postcodes")
+    public List<CreditLimitStatistics> statisticsByPostcode() {
+        return customerStatisticsService.findByPostcode();
+    }
+
+    private int pageSize(Integer size) {
+        if (size == null || size < 1) {
+            return defaultPageSize;
+        }
+        return Math.min(size, maxPageSize);
+    }
+}
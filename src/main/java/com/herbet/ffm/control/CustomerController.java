@@ -1,27 +1,59 @@
 package com.herbet.ffm.control;
 
-import com.herbet.ffm.repository.CustomerRepository;
+import com.herbet.ffm.dto.CustomerSearch;
+import com.herbet.ffm.service.CustomerCrudService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 
 @Controller
 public class CustomerController {
 
     @Autowired
-    private CustomerRepository repository;
+    private CustomerCrudService customerCrudService;
+
+    @Value("${customers.page.size}")
+    private Integer pageSize;
+
+    @Value("${api.page.max.size}")
+    private Integer maxPageSize;
 
     @GetMapping("/customer/{id}")
     public String customer(@PathVariable Long id, Model model) {
-        model.addAttribute("customer", repository.findOne(id));
+        model.addAttribute("customer", customerCrudService.findOne(id));
         return "customer";
     }
 
+    /**
+     * Shows page of customers. Page is found by id of last customer of previous page (after) or id of first customer
+     * of next page (before), first page is shown if none is given.
+     */
     @GetMapping("/customers")
-    public String customersList(Model model) {
-        model.addAttribute("customers", repository.findAll());
+    public String customersList(@RequestParam(required = false) Long after,
+                                @RequestParam(required = false) Long before, Model model) {
+        if (before != null) {
+            model.addAttribute("page", customerCrudService.findPageBefore(before, pageSize));
+        } else {
+            model.addAttribute("page", customerCrudService.findPageAfter(after != null ? after : 0, pageSize));
+        }
         return "customers";
     }
+
+    /**
+     * Shows form of search and customers found by criteria of form, nothing is searched until form is sent.
+     */
+    @GetMapping("/customers/search")
+    public String customersSearch(@ModelAttribute("search") CustomerSearch search,
+                                  @RequestParam(required = false) boolean searched, Model model) {
+        if (searched) {
+            int limit = search.getLimit() != null ? Math.min(Math.max(search.getLimit(), 1), maxPageSize) : pageSize;
+            model.addAttribute("customers", customerCrudService.search(search, limit));
+        }
+        return "search";
+    }
 }
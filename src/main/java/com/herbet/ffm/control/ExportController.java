@@ -0,0 +1,69 @@
+package com.herbet.ffm.control;
+
+import com.herbet.ffm.service.CustomerExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletResponse;
+
+@Controller
+public class ExportController {
+
+    // size of buffer of written file, bigger than chunk of response
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    @Autowired
+    private CustomerExportService customerExportService;
+
+    // exported files use the same encoding as uploaded files
+    @Value("${input.file.encoding}")
+    private String outputFileEncoding;
+
+    @GetMapping("/export/customers.csv")
+    public void exportCsv(@RequestParam(defaultValue = "false") boolean gzip, HttpServletResponse response)
+            throws IOException {
+        try (Writer writer = openFile(response, "customers.csv", "text/csv", gzip)) {
+            customerExportService.exportCsv(writer);
+        }
+    }
+
+    @GetMapping("/export/customers.prn")
+    public void exportPrn(@RequestParam(defaultValue = "false") boolean gzip, HttpServletResponse response)
+            throws IOException {
+        try (Writer writer = openFile(response, "customers.prn", "text/plain", gzip)) {
+            customerExportService.exportPrn(writer);
+        }
+    }
+
+    /**
+     * Sets headers of exported file and opens writer of response body. If gzip is true then body is compressed and
+     * sent with gzip content encoding.
+     */
+    private Writer openFile(HttpServletResponse response, String fileName, String contentType, boolean gzip)
+            throws IOException {
+        Charset charset = Charset.forName(outputFileEncoding);
+
+        response.setContentType(contentType + ";charset=" + charset.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+
+        OutputStream output = response.getOutputStream();
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            output = new GZIPOutputStream(output, BUFFER_SIZE);
+        }
+
+        return new BufferedWriter(new OutputStreamWriter(output, charset), BUFFER_SIZE);
+    }
+}
@@ -1,15 +1,25 @@
 package com.herbet.ffm.control;
 
 import com.herbet.ffm.exception.ApplicationException;
+import com.herbet.ffm.service.ImportBatch;
+import com.herbet.ffm.service.ImportJob;
+import com.herbet.ffm.service.ImportJobService;
 import com.herbet.ffm.service.UploadCustomersService;
+import com.herbet.ffm.service.ValidationReport;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.logging.Logger;
 
 @Controller
@@ -20,6 +30,13 @@ public class FileUploadController {
     @Autowired
     private UploadCustomersService uploadCustomersService;
 
+    @Autowired
+    private ImportJobService importJobService;
+
+    // if true then file is uploaded in background and status of upload job is shown
+    @Value("${import.async}")
+    private Boolean asyncImport;
+
     @GetMapping("/")
     public String getUploadForm() {
 
@@ -29,8 +46,60 @@ public class FileUploadController {
     @PostMapping("/")
     public String handleFileUpload(@RequestParam("file") MultipartFile file) throws IOException, ApplicationException {
 
+        if (asyncImport) {
+            ImportJob job = importJobService.submit(file);
+            return "redirect:/jobs/" + job.getId();
+        }
+
         uploadCustomersService.uploadCustomersFromFile(file);
 
         return "redirect:/customers";
     }
+
+    /**
+     * Checks file without loading it, all incorrect lines are shown.
+     */
+    @PostMapping("/validate")
+    public String handleFileValidation(@RequestParam("file") MultipartFile file, Model model)
+            throws IOException, ApplicationException {
+
+        model.addAttribute("report", uploadCustomersService.validateCustomersFile(file));
+
+        return "validation";
+    }
+
+    /**
+     * Checks file without loading it for clients which fix files before they are uploaded.
+     */
+    @PostMapping(value = "/validate", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ValidationReport validateFile(@RequestParam("file") MultipartFile file)
+            throws IOException, ApplicationException {
+
+        return uploadCustomersService.validateCustomersFile(file);
+    }
+
+    /**
+     * Uploads many csv and prn files or ZIP archives of them in background, status of every file is shown on page of
+     * batch.
+     */
+    @PostMapping("/batch")
+    public String handleBatchUpload(@RequestParam("files") List<MultipartFile> files)
+            throws IOException, ApplicationException {
+
+        ImportBatch batch = importJobService.submitBatch(files);
+
+        return "redirect:/batches/" + batch.getId();
+    }
+
+    /**
+     * Uploads many files for clients which poll for status of batch.
+     */
+    @PostMapping(value = "/batch", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<ImportBatch> submitBatch(@RequestParam("files") List<MultipartFile> files)
+            throws IOException, ApplicationException {
+
+        return ResponseEntity.accepted().body(importJobService.submitBatch(files));
+    }
 }
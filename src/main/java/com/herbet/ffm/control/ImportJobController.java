@@ -0,0 +1,52 @@
+package com.herbet.ffm.control;
+
+import com.herbet.ffm.service.ImportBatch;
+import com.herbet.ffm.service.ImportJob;
+import com.herbet.ffm.service.ImportJobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+@Controller
+public class ImportJobController {
+
+    @Autowired
+    private ImportJobService importJobService;
+
+    @GetMapping("/jobs/{id}")
+    public String job(@PathVariable String id, Model model) {
+        model.addAttribute("job", importJobService.findJob(id));
+        return "job";
+    }
+
+    /**
+     * Status of upload job for clients polling for it.
+     */
+    @GetMapping(value = "/jobs/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<ImportJob> jobStatus(@PathVariable String id) {
+        ImportJob job = importJobService.findJob(id);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/batches/{id}")
+    public String batch(@PathVariable String id, Model model) {
+        model.addAttribute("batch", importJobService.findBatch(id));
+        return "batch";
+    }
+
+    /**
+     * Status of every file of batch for clients polling for it.
+     */
+    @GetMapping(value = "/batches/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<ImportBatch> batchStatus(@PathVariable String id) {
+        ImportBatch batch = importJobService.findBatch(id);
+        return batch != null ? ResponseEntity.ok(batch) : ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,56 @@
+package com.herbet.ffm.dto;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Number of customers and their credit limits aggregated over one group of customers, like customers of one source.
+ */
+public class CreditLimitStatistics {
+
+    // value shared by customers of group
+    private final String group;
+
+    private final long customers;
+
+    private final long totalCents;
+
+    private final long minCents;
+
+    private final long maxCents;
+
+    public CreditLimitStatistics(String group, long customers, long totalCents, long minCents, long maxCents) {
+        this.group = group;
+        this.customers = customers;
+        this.totalCents = totalCents;
+        this.minCents = minCents;
+        this.maxCents = maxCents;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public long getCustomers() {
+        return customers;
+    }
+
+    public BigDecimal getTotalCreditLimit() {
+        return BigDecimal.valueOf(totalCents, 2);
+    }
+
+    /**
+     * @return average credit limit rounded half up to cents
+     */
+    public BigDecimal getAverageCreditLimit() {
+        return BigDecimal.valueOf(totalCents, 2).divide(BigDecimal.valueOf(customers), 2, RoundingMode.HALF_UP);
+    }
+
+    public BigDecimal getMinCreditLimit() {
+        return BigDecimal.valueOf(minCents, 2);
+    }
+
+    public BigDecimal getMaxCreditLimit() {
+        return BigDecimal.valueOf(maxCents, 2);
+    }
+}
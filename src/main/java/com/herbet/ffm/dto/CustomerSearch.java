@@ -0,0 +1,121 @@
+package com.herbet.ffm.dto;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Criteria of search of customers. Every criterion is optional, ranges include their bounds.
+ */
+public class CustomerSearch {
+
+    public enum Sort {
+        ID("id"), LAST_NAME("lastName"), BIRTHDAY("birthday"), CREDIT_LIMIT("creditLimitCents");
+
+        // name of attribute of customer
+        private final String attribute;
+
+        Sort(String attribute) {
+            this.attribute = attribute;
+        }
+
+        public String getAttribute() {
+            return attribute;
+        }
+    }
+
+    // prefix of last name
+    private String lastName;
+
+    private String postcode;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate birthdayFrom;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate birthdayTo;
+
+    private BigDecimal creditLimitFrom;
+
+    private BigDecimal creditLimitTo;
+
+    private Sort sort = Sort.LAST_NAME;
+
+    private boolean descending;
+
+    // maximal number of found customers, default limit is used if not given
+    private Integer limit;
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public String getPostcode() {
+        return postcode;
+    }
+
+    public void setPostcode(String postcode) {
+        this.postcode = postcode;
+    }
+
+    public LocalDate getBirthdayFrom() {
+        return birthdayFrom;
+    }
+
+    public void setBirthdayFrom(LocalDate birthdayFrom) {
+        this.birthdayFrom = birthdayFrom;
+    }
+
+    public LocalDate getBirthdayTo() {
+        return birthdayTo;
+    }
+
+    public void setBirthdayTo(LocalDate birthdayTo) {
+        this.birthdayTo = birthdayTo;
+    }
+
+    public BigDecimal getCreditLimitFrom() {
+        return creditLimitFrom;
+    }
+
+    public void setCreditLimitFrom(BigDecimal creditLimitFrom) {
+        this.creditLimitFrom = creditLimitFrom;
+    }
+
+    public BigDecimal getCreditLimitTo() {
+        return creditLimitTo;
+    }
+
+    public void setCreditLimitTo(BigDecimal creditLimitTo) {
+        this.creditLimitTo = creditLimitTo;
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+
+    public void setSort(Sort sort) {
+        this.sort = sort;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public void setDescending(boolean descending) {
+        this.descending = descending;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+}
@@ -0,0 +1,99 @@
+package com.herbet.ffm.dto;
+
+import com.herbet.ffm.entity.Customer;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+
+/**
+ * Read-only view of customer together with its address, used for listing customers. Views are created directly by
+ * queries, so they are not managed (nor dirty-checked) by persistence context.
+ */
+public class CustomerView {
+
+    private final long id;
+
+    private final String firstName;
+
+    private final String lastName;
+
+    private final String street;
+
+    private final String postcode;
+
+    private final String phone;
+
+    private final long creditLimitCents;
+
+    private final Date birthday;
+
+    private final String source;
+
+    public CustomerView(long id, String firstName, String lastName, String street, String postcode, String phone,
+                        long creditLimitCents, java.util.Date birthday, String source) {
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.street = street;
+        this.postcode = postcode;
+        this.phone = phone;
+        this.creditLimitCents = creditLimitCents;
+        // query declares birthday as java.util.Date, even though it is created as java.sql.Date
+        this.birthday = birthday == null || birthday instanceof Date ? (Date) birthday : new Date(birthday.getTime());
+        this.source = source;
+    }
+
+    /**
+     * @param customer customer with initialized address
+     * @return view of customer
+     */
+    public static CustomerView of(Customer customer) {
+        return new CustomerView(customer.getId(), customer.getFirstName(), customer.getLastName(),
+                                customer.getAddress().getStreet(), customer.getAddress().getPostcode(),
+                                customer.getPhone(), customer.getCreditLimitCents(), customer.getBirthday(),
+                                customer.getSource());
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getStreet() {
+        return street;
+    }
+
+    public String getPostcode() {
+        return postcode;
+    }
+
+    public String getPhone() {
+        return phone;
+    }
+
+    public long getCreditLimitCents() {
+        return creditLimitCents;
+    }
+
+    /**
+     * @return credit limit as decimal with 2 fraction digits
+     */
+    public BigDecimal getCreditLimit() {
+        return BigDecimal.valueOf(creditLimitCents, 2);
+    }
+
+    public Date getBirthday() {
+        return birthday;
+    }
+
+    public String getSource() {
+        return source;
+    }
+}
@@ -7,17 +7,24 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
 
 // extracted from Customer during basic normalization
 
 /**
- * Entity representing address.
+ * Entity representing address. Location (postcode and street) is unique, the backing index is used to find already
+ * existing addresses during upload.
  */
 @Entity
+@Table(indexes = @Index(name = "ux_address_location", columnList = "postcode, street", unique = true))
 public class Address {
 
+    // ids are taken from pooled sequence, so batch of inserts needs only one sequence call
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "address_seq")
+    @SequenceGenerator(name = "address_seq", sequenceName = "address_seq", allocationSize = 50)
     private long id;
 
     private String street;
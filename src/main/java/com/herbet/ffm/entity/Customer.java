@@ -2,53 +2,74 @@ package com.herbet.ffm.entity;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
+import org.hibernate.annotations.DynamicUpdate;
 
+import java.math.BigDecimal;
 import java.sql.Date;
 
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
 
 /**
- * Entity representing customer.
+ * Entity representing customer. Hashes of rows from which customers were created are indexed by source, so rows
+ * already loaded from the same source are found during upload. Names and birthday are indexed as natural key of
+ * customer, birthday and credit limit are indexed for searches by ranges. Updates of customer contain only changed
+ * columns.
  */
 @Entity
+@DynamicUpdate
+@Table(indexes = {@Index(name = "ix_customer_source_row_hash", columnList = "source, rowHash"),
+                  @Index(name = "ix_customer_natural_key", columnList = "lastName, firstName, birthday"),
+                  @Index(name = "ix_customer_birthday", columnList = "birthday"),
+                  @Index(name = "ix_customer_credit_limit", columnList = "creditLimitCents")})
 public class Customer {
 
+    // ids are taken from pooled sequence, so batch of inserts needs only one sequence call
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_seq")
+    @SequenceGenerator(name = "customer_seq", sequenceName = "customer_seq", allocationSize = 50)
     private long id;
 
     private String firstName;
 
     private String lastName;
 
-    @ManyToOne
+    // address is loaded only when needed, queries which need it fetch it with customer
+    @ManyToOne(fetch = FetchType.LAZY)
     private Address address;
 
     private String phone;
 
-    private double creditLimit;
+    // exact amount of credit limit in cents
+    private long creditLimitCents;
 
     private Date birthday;
 
     // source from which customer was created
     private String source;
 
+    // hash of row of source from which customer was created, 0 if customer was not created from row
+    private long rowHash;
+
     public Customer() {
         super();
     }
 
-    public Customer(String firstName, String lastName, Address address, String phone, double creditLimit, Date birthday,
-                    String source) {
+    public Customer(String firstName, String lastName, Address address, String phone, long creditLimitCents,
+                    Date birthday, String source) {
         super();
         this.firstName = firstName;
         this.lastName = lastName;
         this.address = address;
         this.phone = phone;
-        this.creditLimit = creditLimit;
+        this.creditLimitCents = creditLimitCents;
         this.birthday = birthday;
         this.source = source;
     }
@@ -93,12 +114,19 @@ public class Customer {
         this.phone = phone;
     }
 
-    public double getCreditLimit() {
-        return creditLimit;
+    public long getCreditLimitCents() {
+        return creditLimitCents;
+    }
+
+    public void setCreditLimitCents(long creditLimitCents) {
+        this.creditLimitCents = creditLimitCents;
     }
 
-    public void setCreditLimit(double creditLimit) {
-        this.creditLimit = creditLimit;
+    /**
+     * @return credit limit as decimal with 2 fraction digits
+     */
+    public BigDecimal getCreditLimit() {
+        return BigDecimal.valueOf(creditLimitCents, 2);
     }
 
     public Date getBirthday() {
@@ -117,12 +145,35 @@ public class Customer {
         this.source = source;
     }
 
+    public long getRowHash() {
+        return rowHash;
+    }
+
+    public void setRowHash(final long rowHash) {
+        this.rowHash = rowHash;
+    }
+
+    /**
+     * Copies all fields except id from other customer. Only fields with different values are updated in DB.
+     *
+     * @param other customer with new values
+     */
+    public void copyFieldsFrom(Customer other) {
+        this.firstName = other.firstName;
+        this.lastName = other.lastName;
+        this.address = other.address;
+        this.phone = other.phone;
+        this.creditLimitCents = other.creditLimitCents;
+        this.birthday = other.birthday;
+        this.source = other.source;
+        this.rowHash = other.rowHash;
+    }
+
     @Override
     public String toString() {
         return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).append("id", id).append("firstName",
                                                                                                    firstName).append(
-                "lastName", lastName).append("address", address).append("creditLimit", creditLimit).append("birthday",
-                                                                                                           birthday)
-                .toString();
+                "lastName", lastName).append("address", address).append("creditLimit", getCreditLimit()).append(
+                "birthday", birthday).toString();
     }
 }
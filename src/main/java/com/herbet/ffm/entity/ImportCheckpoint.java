@@ -0,0 +1,82 @@
+package com.herbet.ffm.entity;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/**
+ * Entity representing progress of upload committed in chunks. Checkpoint is looked up by hash of uploaded file and its
+ * name, so upload of the same file from the same source can be resumed after the last committed line. Checkpoint is
+ * removed when upload is finished and together with all customers.
+ */
+@Entity
+@Table(indexes = @Index(name = "ix_import_checkpoint_hash", columnList = "fileHash, fileName"))
+public class ImportCheckpoint {
+
+    @Id
+    @GeneratedValue
+    private long id;
+
+    // SHA-256 of file content in hex
+    @Column(length = 64)
+    private String fileHash;
+
+    private String fileName;
+
+    // number of lines with customer data (header excluded) already committed
+    private long linesCommitted;
+
+    public ImportCheckpoint() {
+        super();
+    }
+
+    public ImportCheckpoint(String fileHash, String fileName) {
+        super();
+        this.fileHash = fileHash;
+        this.fileName = fileName;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getFileHash() {
+        return fileHash;
+    }
+
+    public void setFileHash(String fileHash) {
+        this.fileHash = fileHash;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public long getLinesCommitted() {
+        return linesCommitted;
+    }
+
+    public void setLinesCommitted(long linesCommitted) {
+        this.linesCommitted = linesCommitted;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).append("fileHash", fileHash).append(
+                "fileName", fileName).append("linesCommitted", linesCommitted).toString();
+    }
+}
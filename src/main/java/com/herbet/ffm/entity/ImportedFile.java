@@ -0,0 +1,85 @@
+package com.herbet.ffm.entity;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/**
+ * Entity representing fingerprint of successfully uploaded file. File with the same content uploaded again from the
+ * same source is skipped. Fingerprints are removed together with all customers.
+ * <p>
+ * The same content may be uploaded concurrently from many sources (like copies in one archive), so fingerprints are
+ * not identified by hash of content, only looked up by it.
+ */
+@Entity
+@Table(indexes = @Index(name = "ix_imported_file_hash", columnList = "fileHash, fileName"))
+public class ImportedFile {
+
+    @Id
+    @GeneratedValue
+    private long id;
+
+    // SHA-256 of file content in hex
+    @Column(length = 64)
+    private String fileHash;
+
+    private String fileName;
+
+    // number of lines with customer data (header excluded)
+    private long rows;
+
+    public ImportedFile() {
+        super();
+    }
+
+    public ImportedFile(String fileHash, String fileName, long rows) {
+        super();
+        this.fileHash = fileHash;
+        this.fileName = fileName;
+        this.rows = rows;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getFileHash() {
+        return fileHash;
+    }
+
+    public void setFileHash(String fileHash) {
+        this.fileHash = fileHash;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public void setRows(long rows) {
+        this.rows = rows;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).append("fileHash", fileHash).append(
+                "fileName", fileName).append("rows", rows).toString();
+    }
+}
@@ -0,0 +1,202 @@
+package com.herbet.ffm.parser;
+
+import java.sql.Date;
+import java.text.ParseException;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+
+/**
+ * Thread safe parser of Birthday column. Not existing dates (like 29-02-2015) are not accepted.
+ * <p>
+ * Patterns built only from "dd", "MM", "yyyy" and separators (like "dd/MM/yyyy" or "yyyyMMdd") have fast path: text
+ * matching the pattern exactly is parsed digit by digit, and recently parsed dates are taken from small cache. Any
+ * other text, and text of other patterns, is parsed by non-lenient SimpleDateFormat.
+ */
+public class BirthdayParser {
+
+    // number of cached dates, must be power of two
+    private static final int CACHE_SIZE = 4096;
+
+    // marks position of digit in shape of pattern
+    private static final char DIGIT = 0;
+
+    // years before are parsed by SimpleDateFormat, as its calendar uses julian rules before gregorian cutover
+    private static final int MIN_FAST_YEAR = 1600;
+
+    private final String pattern;
+
+    // for every position of text: expected separator or DIGIT, null if pattern has no fast path
+    private final char[] shape;
+
+    private int dayOffset;
+
+    private int monthOffset;
+
+    private int yearOffset;
+
+    // direct-mapped cache, entries are immutable so races only cause additional misses
+    private final CachedDate[] cache = new CachedDate[CACHE_SIZE];
+
+    private final ThreadLocal<SimpleDateFormat> format;
+
+    public BirthdayParser(String pattern) {
+        this.pattern = pattern;
+        this.shape = compileShape(pattern);
+        this.format = ThreadLocal.withInitial(() -> {
+            SimpleDateFormat simpleDateFormat = new SimpleDateFormat(pattern);
+            // not accept not existing dates line 29-02-2015
+            simpleDateFormat.setLenient(false);
+            return simpleDateFormat;
+        });
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Parses date from trimmed text of Birthday column.
+     *
+     * @param text text of Birthday column
+     * @return parsed date
+     * @throws ParseException if text does not match pattern or date does not exist
+     */
+    public Date parse(CharSequence text) throws ParseException {
+        return parse(text, 0, text.length());
+    }
+
+    /**
+     * Parses date from part of line holding trimmed text of Birthday column.
+     *
+     * @param line line containing Birthday column
+     * @param start index of first character of column
+     * @param end index after last character of column
+     * @return parsed date
+     * @throws ParseException if text does not match pattern or date does not exist
+     */
+    public Date parse(CharSequence line, int start, int end) throws ParseException {
+        if (!matchesShape(line, start, end)) {
+            return new Date(format.get().parse(line.subSequence(start, end).toString()).getTime());
+        }
+
+        int year = number(line, start + yearOffset, 4);
+        int month = number(line, start + monthOffset, 2);
+        int day = number(line, start + dayOffset, 2);
+
+        if (year < MIN_FAST_YEAR) {
+            return new Date(format.get().parse(line.subSequence(start, end).toString()).getTime());
+        }
+
+        int key = (year * 100 + month) * 100 + day;
+        int index = (key ^ (key >>> 12)) & (CACHE_SIZE - 1);
+
+        CachedDate cached = cache[index];
+        if (cached == null || cached.key != key) {
+            if (!exists(year, month, day)) {
+                throw new ParseException("Unparseable date: \"" + line.subSequence(start, end) + "\"", 0);
+            }
+            cached = new CachedDate(key, Date.valueOf(LocalDate.of(year, month, day)).getTime());
+            cache[index] = cached;
+        }
+
+        // java.sql.Date is mutable, so every customer gets its own instance
+        return new Date(cached.time);
+    }
+
+    /**
+     * Checks part of line holding trimmed text of Birthday column without throwing exception, so many lines can be
+     * checked cheaply.
+     *
+     * @param line line containing Birthday column
+     * @param start index of first character of column
+     * @param end index after last character of column
+     * @return true if text matches pattern and date exists
+     */
+    public boolean isValid(CharSequence line, int start, int end) {
+        if (!matchesShape(line, start, end) || number(line, start + yearOffset, 4) < MIN_FAST_YEAR) {
+            // the same check as parse(String), which fails only if nothing could be parsed
+            return format.get().parse(line.subSequence(start, end).toString(), new ParsePosition(0)) != null;
+        }
+
+        return exists(number(line, start + yearOffset, 4), number(line, start + monthOffset, 2),
+                      number(line, start + dayOffset, 2));
+    }
+
+    private static boolean exists(int year, int month, int day) {
+        return month >= 1 && month <= 12 && day >= 1 && day <= LocalDate.of(year, month, 1).lengthOfMonth();
+    }
+
+    private boolean matchesShape(CharSequence line, int start, int end) {
+        if (shape == null || end - start != shape.length) {
+            return false;
+        }
+
+        for (int i = 0; i < shape.length; i++) {
+            char c = line.charAt(start + i);
+            if (shape[i] == DIGIT ? c < '0' || c > '9' : c != shape[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int number(CharSequence text, int offset, int digits) {
+        int number = 0;
+        for (int i = offset; i < offset + digits; i++) {
+            number = number * 10 + text.charAt(i) - '0';
+        }
+        return number;
+    }
+
+    /**
+     * Finds offsets of day, month and year in pattern.
+     *
+     * @return expected character for every position of text, or null if pattern has no fast path
+     */
+    private char[] compileShape(String datePattern) {
+        char[] compiled = new char[datePattern.length()];
+        int fields = 0;
+
+        int i = 0;
+        while (i < datePattern.length()) {
+            char c = datePattern.charAt(i);
+            int end = i;
+            while (end < datePattern.length() && datePattern.charAt(end) == c) {
+                end++;
+            }
+
+            if (c == 'd' && end - i == 2) {
+                dayOffset = i;
+                fields++;
+            } else if (c == 'M' && end - i == 2) {
+                monthOffset = i;
+                fields++;
+            } else if (c == 'y' && end - i == 4) {
+                yearOffset = i;
+                fields++;
+            } else if (Character.isLetter(c) || c == '\'') {
+                return null;
+            }
+
+            for (int j = i; j < end; j++) {
+                compiled[j] = Character.isLetter(c) ? DIGIT : c;
+            }
+            i = end;
+        }
+
+        return fields == 3 ? compiled : null;
+    }
+
+    private static final class CachedDate {
+
+        private final int key;
+
+        private final long time;
+
+        private CachedDate(int key, long time) {
+            this.key = key;
+            this.time = time;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.herbet.ffm.parser;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Line of file encoded in single byte charset, backed by bytes of buffer. Characters are decoded on access, so only
+ * parts of line converted to Strings are decoded as a whole.
+ */
+class ByteLine implements CharSequence {
+
+    private final ByteBuffer buffer;
+
+    private final int offset;
+
+    private final int length;
+
+    private final char[] decodeTable;
+
+    ByteLine(ByteBuffer buffer, int offset, int length, char[] decodeTable) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+        this.decodeTable = decodeTable;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        // absolute get does not change state of buffer, so buffer can be shared by lines parsed in parallel
+        return decodeTable[buffer.get(offset + index) & 0xFF];
+    }
+
+    /**
+     * Decodes part of line.
+     *
+     * @return String with decoded characters
+     */
+    @Override
+    public String subSequence(int start, int end) {
+        char[] chars = new char[end - start];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = charAt(start + i);
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, length);
+    }
+}
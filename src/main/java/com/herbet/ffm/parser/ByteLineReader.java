@@ -0,0 +1,174 @@
+package com.herbet.ffm.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Line reader working on bytes of file encoded in single byte charset. Lines are located by searching for new line
+ * bytes and returned as views of buffer, without decoding. File on disk is memory-mapped in windows, other input is
+ * read in chunks. Lines separated with "\n" and "\r\n" are supported.
+ */
+public class ByteLineReader implements LineReader {
+
+    // size of memory-mapped window of file, lines are never split between windows
+    private static final int MAPPED_WINDOW_SIZE = 1 << 28;
+
+    // size of chunk read from input stream
+    private static final int STREAM_CHUNK_SIZE = 1 << 20;
+
+    private final char[] decodeTable;
+
+    private final FileChannel channel;
+
+    private final InputStream input;
+
+    // position in file of first byte of current buffer
+    private long bufferPosition;
+
+    private ByteBuffer buffer;
+
+    // index in buffer of first byte of next line
+    private int lineStart;
+
+    private boolean endOfInput;
+
+    private ByteLineReader(char[] decodeTable, FileChannel channel, InputStream input) {
+        this.decodeTable = decodeTable;
+        this.channel = channel;
+        this.input = input;
+    }
+
+    /**
+     * Creates reader of file memory-mapped from disk.
+     *
+     * @param file path of file
+     * @param charset single byte charset of file
+     * @return reader of file
+     * @throws IOException
+     */
+    public static ByteLineReader open(Path file, Charset charset) throws IOException {
+        return new ByteLineReader(decodeTable(charset), FileChannel.open(file, StandardOpenOption.READ), null);
+    }
+
+    /**
+     * Creates reader of input stream, stream is read in chunks.
+     *
+     * @param input input stream
+     * @param charset single byte charset of stream
+     * @return reader of input stream
+     */
+    public static ByteLineReader open(InputStream input, Charset charset) {
+        return new ByteLineReader(decodeTable(charset), null, input);
+    }
+
+    /**
+     * Checks if every character of charset is encoded in single byte, so byte offsets are the same as char offsets.
+     *
+     * @param charset charset to check
+     * @return true if charset can be used by this reader
+     */
+    public static boolean supports(Charset charset) {
+        return charset.canEncode() && charset.newEncoder().maxBytesPerChar() == 1.0f;
+    }
+
+    @Override
+    public CharSequence readLine() throws IOException {
+        while (true) {
+            if (buffer != null) {
+                int lineEnd = lineStart;
+                while (lineEnd < buffer.limit() && buffer.get(lineEnd) != '\n') {
+                    lineEnd++;
+                }
+
+                if (lineEnd < buffer.limit() || (endOfInput && lineStart < buffer.limit())) {
+                    ByteLine line = createLine(lineStart, lineEnd);
+                    lineStart = lineEnd + 1;
+                    return line;
+                }
+            }
+
+            if (endOfInput) {
+                return null;
+            }
+            readNextBuffer();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        if (input != null) {
+            input.close();
+        }
+    }
+
+    private ByteLine createLine(int start, int end) {
+        int length = end - start;
+        // drop carriage return of windows line separator
+        if (length > 0 && buffer.get(end - 1) == '\r') {
+            length--;
+        }
+        return new ByteLine(buffer, start, length, decodeTable);
+    }
+
+    /**
+     * Replaces buffer with next part of input, starting with not finished line of current buffer. Previous buffer is
+     * not modified, so lines returned earlier stay valid.
+     */
+    private void readNextBuffer() throws IOException {
+        int remaining = buffer == null ? 0 : buffer.limit() - lineStart;
+
+        if (channel != null) {
+            bufferPosition += buffer == null ? 0 : lineStart;
+            long size = Math.min(channel.size() - bufferPosition, MAPPED_WINDOW_SIZE);
+            if (size == remaining && remaining == MAPPED_WINDOW_SIZE) {
+                throw new IOException("Line longer than " + MAPPED_WINDOW_SIZE + " bytes at position " +
+                                              bufferPosition);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, bufferPosition, size);
+            endOfInput = bufferPosition + size == channel.size();
+        } else {
+            ByteBuffer next = ByteBuffer.allocate(Math.max(STREAM_CHUNK_SIZE, remaining * 2));
+            if (remaining > 0) {
+                ByteBuffer tail = buffer.duplicate();
+                tail.position(lineStart);
+                next.put(tail);
+            }
+            fill(next);
+            next.flip();
+            buffer = next;
+        }
+
+        lineStart = 0;
+    }
+
+    private void fill(ByteBuffer next) throws IOException {
+        while (next.hasRemaining()) {
+            int read = input.read(next.array(), next.position(), next.remaining());
+            if (read < 0) {
+                endOfInput = true;
+                return;
+            }
+            next.position(next.position() + read);
+        }
+    }
+
+    private static char[] decodeTable(Charset charset) {
+        if (!supports(charset)) {
+            throw new IllegalArgumentException("Charset " + charset + " is not single byte charset");
+        }
+
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        return new String(bytes, charset).toCharArray();
+    }
+}
@@ -0,0 +1,151 @@
+package com.herbet.ffm.parser;
+
+/**
+ * Parses Credit Limit column directly from characters of line to exact amount in cents, so no intermediate Strings
+ * nor floating point values are created.
+ */
+public final class CreditLimitParser {
+
+    // more digits could overflow long while they are read, amounts scaled to cents are checked separately
+    private static final int MAX_DIGITS = 17;
+
+    // returned instead of amount for incorrect text, amounts are at least -Long.MAX_VALUE cents, so it is never parsed
+    private static final long INVALID = Long.MIN_VALUE;
+
+    private CreditLimitParser() {
+    }
+
+    /**
+     * Parses amount written with optional sign and optional decimal point followed by at most 2 digits, like "10000",
+     * "54.5" or "-9898.35" (csv format).
+     *
+     * @param line line containing Credit Limit column
+     * @param start index of first character of column
+     * @param end index after last character of column
+     * @return amount in cents
+     * @throws NumberFormatException if text of column is not correct amount
+     */
+    public static long parseDecimal(CharSequence line, int start, int end) {
+        long cents = decimal(line, start, end);
+        if (cents == INVALID) {
+            throw invalidAmount(line, start, end);
+        }
+        return cents;
+    }
+
+    /**
+     * Checks amount in csv format without throwing exception, so many lines can be checked cheaply.
+     *
+     * @param line line containing Credit Limit column
+     * @param start index of first character of column
+     * @param end index after last character of column
+     * @return true if text of column is correct amount
+     */
+    public static boolean isDecimal(CharSequence line, int start, int end) {
+        return decimal(line, start, end) != INVALID;
+    }
+
+    private static long decimal(CharSequence line, int start, int end) {
+        int position = start;
+        boolean negative = false;
+        if (position < end && (line.charAt(position) == '-' || line.charAt(position) == '+')) {
+            negative = line.charAt(position) == '-';
+            position++;
+        }
+
+        long cents = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; position < end; position++) {
+            char c = line.charAt(position);
+            if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (c >= '0' && c <= '9' && fractionDigits < 2) {
+                cents = cents * 10 + c - '0';
+                digits++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else {
+                return INVALID;
+            }
+        }
+
+        if (digits == 0 || digits > MAX_DIGITS) {
+            return INVALID;
+        }
+
+        // scale missing fraction digits to cents, amount which does not fit long in cents is incorrect
+        for (int i = Math.max(fractionDigits, 0); i < 2; i++) {
+            if (cents > Long.MAX_VALUE / 10) {
+                return INVALID;
+            }
+            cents *= 10;
+        }
+
+        return negative ? -cents : cents;
+    }
+
+    /**
+     * Parses amount written with optional sign and digits only, where last 2 digits are cents if there are at least 3
+     * characters, like "10909300" or "-5400" (prn format). Shorter amounts have no cents, so "54" is 54.00.
+     *
+     * @param line line containing Credit Limit column
+     * @param start index of first character of column
+     * @param end index after last character of column
+     * @return amount in cents
+     * @throws NumberFormatException if text of column is not correct amount
+     */
+    public static long parseImpliedDecimals(CharSequence line, int start, int end) {
+        long cents = impliedDecimals(line, start, end);
+        if (cents == INVALID) {
+            throw invalidAmount(line, start, end);
+        }
+        return cents;
+    }
+
+    /**
+     * Checks amount in prn format without throwing exception, so many lines can be checked cheaply.
+     *
+     * @param line line containing Credit Limit column
+     * @param start index of first character of column
+     * @param end index after last character of column
+     * @return true if text of column is correct amount
+     */
+    public static boolean isImpliedDecimals(CharSequence line, int start, int end) {
+        return impliedDecimals(line, start, end) != INVALID;
+    }
+
+    private static long impliedDecimals(CharSequence line, int start, int end) {
+        int position = start;
+        boolean negative = false;
+        if (position < end && (line.charAt(position) == '-' || line.charAt(position) == '+')) {
+            negative = line.charAt(position) == '-';
+            position++;
+        }
+
+        if (position == end || end - position > MAX_DIGITS) {
+            return INVALID;
+        }
+
+        long cents = 0;
+        for (; position < end; position++) {
+            char c = line.charAt(position);
+            if (c < '0' || c > '9') {
+                return INVALID;
+            }
+            cents = cents * 10 + c - '0';
+        }
+
+        // at most 2 digits, so amount in cents always fits long
+        if (end - start < 3) {
+            cents *= 100;
+        }
+
+        return negative ? -cents : cents;
+    }
+
+    private static NumberFormatException invalidAmount(CharSequence line, int start, int end) {
+        return new NumberFormatException("For input string: \"" + line.subSequence(start, end) + "\"");
+    }
+}
@@ -0,0 +1,87 @@
+package com.herbet.ffm.parser;
+
+import static com.herbet.ffm.parser.LineScanner.BLANK_TOKEN;
+import static com.herbet.ffm.parser.LineScanner.find;
+import static com.herbet.ffm.parser.LineScanner.scanTokens;
+import static com.herbet.ffm.parser.LineScanner.skip;
+
+import com.herbet.ffm.exception.ApplicationException;
+
+/**
+ * Single pass tokenizer of csv lines with customer data in format:
+ * <pre>"Lastname, Firstname",Address,Postcode,Phone,Credit Limit,Birthday</pre>
+ * Field boundaries are found by index, no Strings are created for valid lines. Rules (and error
+ * messages) are the same as for splitting line on quotation marks and then on commas, with empty tokens ignored.
+ */
+public final class CsvCustomerTokenizer {
+
+    private static final char QUOTATION = '"';
+
+    private static final char SEPARATOR = ',';
+
+    // Name column holds Lastname and Firstname
+    private static final int NAME_TOKENS = 2;
+
+    // Address, Postcode, Phone, Credit Limit and Birthday
+    private static final int OTHER_TOKENS = 5;
+
+    private CsvCustomerTokenizer() {
+    }
+
+    /**
+     * Splits csv line into fields of customer.
+     *
+     * @param csvLine line with customer data in csv format
+     * @return bounds of trimmed fields of customer
+     * @throws ApplicationException if line has not enough fields, Name has incorrect format or any field is empty
+     */
+    public static CustomerRecord tokenize(CharSequence csvLine) throws ApplicationException {
+        CustomerRecord record = scan(csvLine);
+        if (record.getError() != null) {
+            throw new ApplicationException(record.getError());
+        }
+        return record;
+    }
+
+    /**
+     * Splits csv line into fields of customer without throwing exception for incorrect line, so many lines can be
+     * checked cheaply.
+     *
+     * @param csvLine line with customer data in csv format
+     * @return bounds of trimmed fields of customer, or error if line has not enough fields, Name has incorrect format
+     * or any field is empty
+     */
+    public static CustomerRecord scan(CharSequence csvLine) {
+        int length = csvLine.length();
+
+        // Name column is the first part surrounded with quotations, other columns are the second part
+        int nameStart = skip(csvLine, 0, length, QUOTATION);
+        int nameEnd = find(csvLine, nameStart, length, QUOTATION);
+        int otherStart = skip(csvLine, nameEnd, length, QUOTATION);
+        int otherEnd = find(csvLine, otherStart, length, QUOTATION);
+
+        CustomerRecord record = new CustomerRecord(csvLine);
+
+        if (otherStart == length) {
+            record.setError("Following line has incorrect format (not enough fields): " + csvLine);
+            return record;
+        }
+
+        int names = scanTokens(csvLine, nameStart, nameEnd, SEPARATOR, record, CustomerRecord.LAST_NAME, NAME_TOKENS);
+        if ((names & ~BLANK_TOKEN) < NAME_TOKENS) {
+            record.setError("Column Name has incorrect format (should be \"Lastname, Firstname\"): \"" +
+                                    csvLine.subSequence(nameStart, nameEnd) + "\"");
+            return record;
+        }
+
+        int others = scanTokens(csvLine, otherStart, otherEnd, SEPARATOR, record, CustomerRecord.STREET, OTHER_TOKENS);
+        if ((others & ~BLANK_TOKEN) < OTHER_TOKENS) {
+            record.setError("Following line has incorrect format (not enough fields): " + csvLine);
+        } else if (((names | others) & BLANK_TOKEN) != 0) {
+            record.setError("Following line has incorrect format (all fields are mandatory and can not be empty or " +
+                                    "spaces): " + csvLine);
+        }
+
+        return record;
+    }
+}
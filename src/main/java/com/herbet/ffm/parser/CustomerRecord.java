@@ -0,0 +1,107 @@
+package com.herbet.ffm.parser;
+
+/**
+ * Fields of single line with customer data, as they were read from uploaded file. Record keeps line and bounds of
+ * trimmed fields, so Strings are created only for fields that are read by getters, and columns converted to numbers
+ * or dates can be parsed directly from characters of line. Values are not converted nor validated beyond being
+ * present and not empty. Record of line in which fields could not be found holds only error.
+ */
+public class CustomerRecord {
+
+    static final int LAST_NAME = 0;
+
+    static final int FIRST_NAME = 1;
+
+    static final int STREET = 2;
+
+    static final int POSTCODE = 3;
+
+    static final int PHONE = 4;
+
+    static final int CREDIT_LIMIT = 5;
+
+    static final int BIRTHDAY = 6;
+
+    static final int FIELDS_COUNT = 7;
+
+    private final CharSequence line;
+
+    // start and end of every field in line
+    private final int[] bounds = new int[FIELDS_COUNT * 2];
+
+    // message describing why fields could not be found, null if line has correct format
+    private String error;
+
+    CustomerRecord(CharSequence line) {
+        this.line = line;
+    }
+
+    void setField(int field, int start, int end) {
+        bounds[field * 2] = start;
+        bounds[field * 2 + 1] = end;
+    }
+
+    void setError(String error) {
+        this.error = error;
+    }
+
+    public CharSequence getLine() {
+        return line;
+    }
+
+    /**
+     * @return message describing incorrect format of line, null if all fields were found
+     */
+    public String getError() {
+        return error;
+    }
+
+    public String getLastName() {
+        return getField(LAST_NAME);
+    }
+
+    public String getFirstName() {
+        return getField(FIRST_NAME);
+    }
+
+    public String getStreet() {
+        return getField(STREET);
+    }
+
+    public String getPostcode() {
+        return getField(POSTCODE);
+    }
+
+    public String getPhone() {
+        return getField(PHONE);
+    }
+
+    public String getCreditLimit() {
+        return getField(CREDIT_LIMIT);
+    }
+
+    public int getCreditLimitStart() {
+        return bounds[CREDIT_LIMIT * 2];
+    }
+
+    public int getCreditLimitEnd() {
+        return bounds[CREDIT_LIMIT * 2 + 1];
+    }
+
+    public String getBirthday() {
+        return getField(BIRTHDAY);
+    }
+
+    public int getBirthdayStart() {
+        return bounds[BIRTHDAY * 2];
+    }
+
+    public int getBirthdayEnd() {
+        return bounds[BIRTHDAY * 2 + 1];
+    }
+
+    // creates new String on every call
+    private String getField(int field) {
+        return line.subSequence(bounds[field * 2], bounds[field * 2 + 1]).toString();
+    }
+}
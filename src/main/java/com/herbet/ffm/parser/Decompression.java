@@ -0,0 +1,86 @@
+package com.herbet.ffm.parser;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Recognizes compressed input by its first bytes, so gzip and deflate (zlib) compressed files are read the same way as
+ * plain files, whatever their name or declared encoding is. Compressed input is inflated while it is read.
+ */
+public final class Decompression {
+
+    // size of buffers of compressed and inflated input
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final String GZIP_EXTENSION = ".gz";
+
+    private Decompression() {
+    }
+
+    /**
+     * Opens stream of decompressed content of input. Input which is not compressed is only buffered.
+     *
+     * @param input input stream, closed when returned stream is closed
+     * @return stream of decompressed content
+     * @throws IOException
+     */
+    public static InputStream open(InputStream input) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(input, BUFFER_SIZE);
+
+        int[] header = peekHeader(buffered);
+        if (isGzip(header)) {
+            return new GZIPInputStream(buffered, BUFFER_SIZE);
+        }
+        if (isZlib(header)) {
+            return new BufferedInputStream(new InflaterInputStream(buffered), BUFFER_SIZE);
+        }
+        return buffered;
+    }
+
+    /**
+     * @param file path of file
+     * @return true if file is gzip or deflate compressed
+     * @throws IOException
+     */
+    public static boolean isCompressed(Path file) throws IOException {
+        try (BufferedInputStream input = new BufferedInputStream(Files.newInputStream(file), 2)) {
+            int[] header = peekHeader(input);
+            return isGzip(header) || isZlib(header);
+        }
+    }
+
+    /**
+     * Removes extension of compressed file, so "customers.csv.gz" becomes "customers.csv".
+     *
+     * @param fileName name of file
+     * @return name of file without extension of compression
+     */
+    public static String stripExtension(String fileName) {
+        if (fileName.toLowerCase().endsWith(GZIP_EXTENSION)) {
+            return fileName.substring(0, fileName.length() - GZIP_EXTENSION.length());
+        }
+        return fileName;
+    }
+
+    private static int[] peekHeader(BufferedInputStream input) throws IOException {
+        input.mark(2);
+        int[] header = {input.read(), input.read()};
+        input.reset();
+        return header;
+    }
+
+    private static boolean isGzip(int[] header) {
+        return header[0] == 0x1f && header[1] == 0x8b;
+    }
+
+    // deflate method with 32K window and header checksum, text of customers file never starts with such bytes
+    private static boolean isZlib(int[] header) {
+        return header[0] == 0x78 && header[1] >= 0 && (header[0] << 8 | header[1]) % 31 == 0 &&
+                (header[1] == 0x01 || header[1] == 0x5e || header[1] == 0x9c || header[1] == 0xda);
+    }
+}
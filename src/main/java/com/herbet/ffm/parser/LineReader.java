@@ -0,0 +1,19 @@
+package com.herbet.ffm.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reader providing lines of uploaded file one by one. Returned lines stay valid after next lines are read, so they can
+ * be parsed later or by other threads.
+ */
+public interface LineReader extends Closeable {
+
+    /**
+     * Reads next line of file, without line terminator.
+     *
+     * @return next line or null if end of file was reached
+     * @throws IOException
+     */
+    CharSequence readLine() throws IOException;
+}
@@ -0,0 +1,80 @@
+package com.herbet.ffm.parser;
+
+/**
+ * Index based scanning of parts of line with customer data, shared by tokenizers of all file formats.
+ */
+final class LineScanner {
+
+    // set in result of scanTokens if any token is empty or contains only spaces
+    static final int BLANK_TOKEN = 1 << 30;
+
+    private LineScanner() {
+    }
+
+    /**
+     * Finds tokens separated by separator in given part of line (adjacent separators are treated as one). Bounds of
+     * trimmed values of first tokens are stored in record, remaining tokens are only checked.
+     *
+     * @return number of tokens, with BLANK_TOKEN bit set if any token is empty or contains only spaces
+     */
+    static int scanTokens(CharSequence line, int from, int to, char separator, CustomerRecord record, int firstField,
+                          int storedTokens) {
+        int tokens = 0;
+        int blank = 0;
+
+        int tokenStart = skip(line, from, to, separator);
+        while (tokenStart < to) {
+            int tokenEnd = find(line, tokenStart, to, separator);
+
+            int valueStart = trimStart(line, tokenStart, tokenEnd);
+            int valueEnd = trimEnd(line, valueStart, tokenEnd);
+
+            if (valueStart == valueEnd) {
+                blank = BLANK_TOKEN;
+            } else if (tokens < storedTokens) {
+                record.setField(firstField + tokens, valueStart, valueEnd);
+            }
+
+            tokens++;
+            tokenStart = skip(line, tokenEnd, to, separator);
+        }
+
+        return tokens | blank;
+    }
+
+    // returns index of first character other than skipped one, or end of range
+    static int skip(CharSequence line, int from, int to, char skipped) {
+        int index = from;
+        while (index < to && line.charAt(index) == skipped) {
+            index++;
+        }
+        return index;
+    }
+
+    // returns index of first occurrence of character, or end of range
+    static int find(CharSequence line, int from, int to, char searched) {
+        int index = from;
+        while (index < to && line.charAt(index) != searched) {
+            index++;
+        }
+        return index;
+    }
+
+    // returns index of first character of range that is not removed by String.trim(), or end of range
+    static int trimStart(CharSequence line, int from, int to) {
+        int index = from;
+        while (index < to && line.charAt(index) <= ' ') {
+            index++;
+        }
+        return index;
+    }
+
+    // returns index after last character of range that is not removed by String.trim(), or start of range
+    static int trimEnd(CharSequence line, int from, int to) {
+        int index = to;
+        while (index > from && line.charAt(index - 1) <= ' ') {
+            index--;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,227 @@
+package com.herbet.ffm.parser;
+
+import static com.herbet.ffm.parser.LineScanner.BLANK_TOKEN;
+import static com.herbet.ffm.parser.LineScanner.scanTokens;
+import static com.herbet.ffm.parser.LineScanner.trimEnd;
+import static com.herbet.ffm.parser.LineScanner.trimStart;
+
+import com.herbet.ffm.exception.ApplicationException;
+
+/**
+ * Layout of prn lines with customer data, where every column has fixed start and end offset. Offsets are counted in
+ * characters, for files in single byte charset they are the same as offsets in bytes. Column that ends after end of
+ * line is cut at end of line. Layout is either configured or derived from labels of columns in header line.
+ */
+public class PrnLayout {
+
+    private static final char NAME_SEPARATOR = ',';
+
+    // Name column holds Lastname and Firstname
+    private static final int NAME_TOKENS = 2;
+
+    // labels of columns in header line, in order of columns
+    private static final String[] LABELS = {"Name", "Address", "Postcode", "Phone", "Credit Limit", "Birthday"};
+
+    private final int nameStart;
+
+    private final int nameEnd;
+
+    private final int addressStart;
+
+    private final int addressEnd;
+
+    private final int postcodeStart;
+
+    private final int postcodeEnd;
+
+    private final int phoneStart;
+
+    private final int phoneEnd;
+
+    private final int creditLimitStart;
+
+    private final int creditLimitEnd;
+
+    private final int birthdayStart;
+
+    private final int birthdayEnd;
+
+    public PrnLayout(int nameStart, int nameEnd, int addressStart, int addressEnd, int postcodeStart,
+                     int postcodeEnd, int phoneStart, int phoneEnd, int creditLimitStart, int creditLimitEnd,
+                     int birthdayStart, int birthdayEnd) {
+        this.nameStart = nameStart;
+        this.nameEnd = nameEnd;
+        this.addressStart = addressStart;
+        this.addressEnd = addressEnd;
+        this.postcodeStart = postcodeStart;
+        this.postcodeEnd = postcodeEnd;
+        this.phoneStart = phoneStart;
+        this.phoneEnd = phoneEnd;
+        this.creditLimitStart = creditLimitStart;
+        this.creditLimitEnd = creditLimitEnd;
+        this.birthdayStart = birthdayStart;
+        this.birthdayEnd = birthdayEnd;
+    }
+
+    /**
+     * Derives layout from header line: every column starts at its label and ends where the next column starts, the
+     * last column ends at end of line. Labels have to stand in order of columns, separated by spaces.
+     *
+     * @param header header line of prn file
+     * @return layout of columns or null if any label is missing
+     */
+    public static PrnLayout detect(CharSequence header) {
+        String text = header.toString();
+        int[] starts = new int[LABELS.length];
+
+        int from = 0;
+        for (int i = 0; i < LABELS.length; i++) {
+            starts[i] = findLabel(text, LABELS[i], from);
+            if (starts[i] < 0) {
+                return null;
+            }
+            from = starts[i] + LABELS[i].length();
+        }
+
+        return new PrnLayout(starts[0], starts[1], starts[1], starts[2], starts[2], starts[3], starts[3], starts[4],
+                             starts[4], starts[5], starts[5], Integer.MAX_VALUE);
+    }
+
+    // returns index of label which is not part of longer word, or -1
+    private static int findLabel(String header, String label, int from) {
+        int index = header.indexOf(label, from);
+        while (index >= 0) {
+            int end = index + label.length();
+            boolean separatedBefore = index == 0 || header.charAt(index - 1) <= ' ';
+            boolean separatedAfter = end == header.length() || header.charAt(end) <= ' ';
+            if (separatedBefore && separatedAfter) {
+                return index;
+            }
+            index = header.indexOf(label, index + 1);
+        }
+        return -1;
+    }
+
+    /**
+     * Extracts fields of customer from prn line.
+     *
+     * @param prnLine line with customer data in prn format
+     * @return bounds of trimmed fields of customer
+     * @throws ApplicationException if Name has incorrect format or any field is empty
+     */
+    public CustomerRecord extract(CharSequence prnLine) throws ApplicationException {
+        CustomerRecord record = scan(prnLine);
+        if (record.getError() != null) {
+            throw new ApplicationException(record.getError());
+        }
+        return record;
+    }
+
+    /**
+     * Extracts fields of customer from prn line without throwing exception for incorrect line, so many lines can be
+     * checked cheaply.
+     *
+     * @param prnLine line with customer data in prn format
+     * @return bounds of trimmed fields of customer, or error if Name has incorrect format or any field is empty
+     */
+    public CustomerRecord scan(CharSequence prnLine) {
+        int length = prnLine.length();
+
+        CustomerRecord record = new CustomerRecord(prnLine);
+
+        int to = Math.min(nameEnd, length);
+        int from = Math.min(nameStart, to);
+        int names = scanTokens(prnLine, from, to, NAME_SEPARATOR, record, CustomerRecord.LAST_NAME, NAME_TOKENS);
+        if ((names & ~BLANK_TOKEN) < NAME_TOKENS) {
+            record.setError("Column Name has incorrect format (should be \"Lastname, Firstname\"): \"" +
+                                    prnLine.subSequence(from, to) + "\"");
+            return record;
+        }
+
+        boolean blank = (names & BLANK_TOKEN) != 0;
+        blank |= !extractField(prnLine, addressStart, addressEnd, record, CustomerRecord.STREET);
+        blank |= !extractField(prnLine, postcodeStart, postcodeEnd, record, CustomerRecord.POSTCODE);
+        blank |= !extractField(prnLine, phoneStart, phoneEnd, record, CustomerRecord.PHONE);
+        blank |= !extractField(prnLine, creditLimitStart, creditLimitEnd, record, CustomerRecord.CREDIT_LIMIT);
+        blank |= !extractField(prnLine, birthdayStart, birthdayEnd, record, CustomerRecord.BIRTHDAY);
+
+        if (blank) {
+            record.setError("Following line has incorrect format (all fields are mandatory and can not be empty or " +
+                                    "spaces): " + prnLine);
+        }
+
+        return record;
+    }
+
+    /**
+     * Stores bounds of trimmed value of column in record.
+     *
+     * @return false if column is empty or contains only spaces
+     */
+    private static boolean extractField(CharSequence line, int start, int end, CustomerRecord record, int field) {
+        int to = Math.min(end, line.length());
+        int valueStart = trimStart(line, Math.min(start, to), to);
+        int valueEnd = trimEnd(line, valueStart, to);
+
+        if (valueStart == valueEnd) {
+            return false;
+        }
+        record.setField(field, valueStart, valueEnd);
+        return true;
+    }
+
+    /**
+     * Appends header line of prn format, with labels of columns at their offsets.
+     *
+     * @param line empty builder of line
+     */
+    public void appendHeader(StringBuilder line) {
+        appendColumn(line, nameStart, nameEnd, "Name", false);
+        appendColumn(line, addressStart, addressEnd, "Address", false);
+        appendColumn(line, postcodeStart, postcodeEnd, "Postcode", false);
+        appendColumn(line, phoneStart, phoneEnd, "Phone", false);
+        appendColumn(line, creditLimitStart, creditLimitEnd, "Credit Limit", false);
+        line.append("Birthday");
+    }
+
+    /**
+     * Appends line with customer data in prn format. Values are placed at offsets of their columns, values longer than
+     * their column are cut. Credit Limit is aligned right and followed by space, Birthday is not padded.
+     *
+     * @param line empty builder of line
+     * @param name name as "Lastname, Firstname"
+     * @param street street of address
+     * @param postcode postcode of address
+     * @param phone phone
+     * @param creditLimit credit limit in prn format (cents without decimal point)
+     * @param birthday birthday in prn format
+     */
+    public void appendLine(StringBuilder line, String name, String street, String postcode, String phone,
+                           String creditLimit, String birthday) {
+        appendColumn(line, nameStart, nameEnd, name, false);
+        appendColumn(line, addressStart, addressEnd, street, false);
+        appendColumn(line, postcodeStart, postcodeEnd, postcode, false);
+        appendColumn(line, phoneStart, phoneEnd, phone, false);
+        appendColumn(line, creditLimitStart, creditLimitEnd, creditLimit, true);
+        padTo(line, birthdayStart);
+        line.append(birthday, 0, Math.min(birthday.length(), birthdayEnd - birthdayStart));
+    }
+
+    private static void appendColumn(StringBuilder line, int start, int end, String value, boolean alignRight) {
+        padTo(line, start);
+        int width = alignRight ? end - start - 1 : end - start;
+        int length = Math.min(value.length(), width);
+
+        if (alignRight) {
+            padTo(line, start + width - length);
+        }
+        line.append(value, 0, length);
+        padTo(line, end);
+    }
+
+    private static void padTo(StringBuilder line, int offset) {
+        while (line.length() < offset) {
+            line.append(' ');
+        }
+    }
+}
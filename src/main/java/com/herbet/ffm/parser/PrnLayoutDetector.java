@@ -0,0 +1,47 @@
+package com.herbet.ffm.parser;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread safe source of layouts of prn files, found by header line of file. Layout is detected once per distinct
+ * header and cached by text of header, so repeated uploads of files with the same header reuse it without scanning
+ * header again. Header without all labels of columns gets configured layout.
+ */
+public class PrnLayoutDetector {
+
+    // partners send few distinct headers, limit protects memory against files with random first lines
+    private static final int MAX_CACHED_LAYOUTS = 256;
+
+    private final PrnLayout configuredLayout;
+
+    // layouts by text of header, including headers for which configured layout is used
+    private final Map<String, PrnLayout> layouts = new ConcurrentHashMap<>();
+
+    public PrnLayoutDetector(PrnLayout configuredLayout) {
+        this.configuredLayout = configuredLayout;
+    }
+
+    /**
+     * Returns layout of prn file with given header.
+     *
+     * @param header header line of file, null if file has no lines
+     * @return layout derived from header, or configured layout if header has no labels of all columns
+     */
+    public PrnLayout layoutOf(CharSequence header) {
+        if (header == null) {
+            return configuredLayout;
+        }
+
+        String signature = header.toString();
+        PrnLayout layout = layouts.get(signature);
+        if (layout == null) {
+            PrnLayout detectedLayout = PrnLayout.detect(signature);
+            layout = detectedLayout != null ? detectedLayout : configuredLayout;
+            if (layouts.size() < MAX_CACHED_LAYOUTS) {
+                layouts.putIfAbsent(signature, layout);
+            }
+        }
+        return layout;
+    }
+}
@@ -0,0 +1,29 @@
+package com.herbet.ffm.parser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+
+/**
+ * Line reader decoding whole lines of file to Strings.
+ */
+public class TextLineReader implements LineReader {
+
+    private final BufferedReader reader;
+
+    public TextLineReader(InputStream input, Charset charset) {
+        this.reader = new BufferedReader(new InputStreamReader(input, charset));
+    }
+
+    @Override
+    public CharSequence readLine() throws IOException {
+        return reader.readLine();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -1,11 +1,31 @@
 package com.herbet.ffm.repository;
 
 import com.herbet.ffm.entity.Address;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.CrudRepository;
 
+import java.util.List;
+
 /**
  * CRUD Repository for Address used as DAO.
  */
 public interface AddressRepository extends CrudRepository<Address, Long> {
 
+    /**
+     * Finds address with given location. Query is served by unique index on postcode and street.
+     *
+     * @param street street of address
+     * @param postcode postcode of address
+     * @return address with given location or null if there is no such address
+     */
+    Address findByStreetAndPostcode(String street, String postcode);
+
+    /**
+     * Finds addresses with id greater than given one, in order of ids.
+     *
+     * @param id id of last address of previous page
+     * @param pageable limit of addresses (only first page is used, no count query is executed)
+     * @return addresses following given id
+     */
+    List<Address> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
 }
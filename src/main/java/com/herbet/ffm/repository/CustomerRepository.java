@@ -1,11 +1,133 @@
 package com.herbet.ffm.repository;
 
+import com.herbet.ffm.dto.CustomerView;
 import com.herbet.ffm.entity.Customer;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
 
 /**
- * CRUD Repository for Customer used as DAO.
+ * Paging and CRUD Repository for Customer used as DAO.
  */
-public interface CustomerRepository extends CrudRepository<Customer, Long> {
+public interface CustomerRepository extends PagingAndSortingRepository<Customer, Long> {
+
+    // select of customer view, joined with address in the same statement
+    String SELECT_VIEW = "select new com.herbet.ffm.dto.CustomerView(c.id, c.firstName, c.lastName, a.street, " +
+            "a.postcode, c.phone, c.creditLimitCents, c.birthday, c.source) from Customer c join c.address a ";
+
+    /**
+     * Finds customer together with its address in one query.
+     *
+     * @param id id of customer
+     * @return customer with initialized address or null if there is no such customer
+     */
+    @EntityGraph(attributePaths = "address")
+    Customer findWithAddressById(long id);
+
+    /**
+     * Finds views of customers with id greater than given one, in order of ids. Query seeks primary key index, so its
+     * cost does not depend on position of page.
+     *
+     * @param id id of last customer of previous page
+     * @param pageable limit of customers (only first page is used, no count query is executed)
+     * @return customers following given id
+     */
+    @Query(SELECT_VIEW + "where c.id > :id order by c.id asc")
+    List<CustomerView> findViewsAfter(@Param("id") long id, Pageable pageable);
+
+    /**
+     * Finds views of customers with id less than given one, in descending order of ids.
+     *
+     * @param id id of first customer of next page
+     * @param pageable limit of customers (only first page is used, no count query is executed)
+     * @return customers preceding given id, the closest first
+     */
+    @Query(SELECT_VIEW + "where c.id < :id order by c.id desc")
+    List<CustomerView> findViewsBefore(@Param("id") long id, Pageable pageable);
+
+    /**
+     * Streams views of all customers in order of ids from forward-only cursor. Views are not managed, so persistence
+     * context does not grow while stream is read. Stream has to be read and closed within transaction.
+     *
+     * @return views of all customers
+     */
+    @Query(SELECT_VIEW + "order by c.id asc")
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    Stream<CustomerView> streamAllViews();
+
+    /**
+     * Streams hashes of rows from which customers of given source were created, read with index on source and hash.
+     *
+     * @param source source of customers
+     * @return stream of row hashes, it has to be closed
+     */
+    @Query("select c.rowHash from Customer c where c.source = :source")
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    Stream<Long> streamRowHashes(@Param("source") String source);
+
+    /**
+     * Finds customers together with their addresses in one query.
+     *
+     * @param ids ids of customers
+     * @return customers with initialized addresses
+     */
+    @EntityGraph(attributePaths = "address")
+    List<Customer> findWithAddressByIdIn(Collection<Long> ids);
+
+    /**
+     * Aggregates credit limits of all customers by their sources, with one scan of customers.
+     *
+     * @return arrays of source, number of customers, sum, min and max of credit limits in cents
+     */
+    @Query("select c.source, count(c), sum(c.creditLimitCents), min(c.creditLimitCents), max(c.creditLimitCents) " +
+            "from Customer c group by c.source")
+    List<Object[]> aggregateCreditLimitsBySource();
+
+    /**
+     * Aggregates credit limits of all customers by postcodes of their addresses, with one scan of customers.
+     *
+     * @return arrays of postcode, number of customers, sum, min and max of credit limits in cents
+     */
+    @Query("select a.postcode, count(c), sum(c.creditLimitCents), min(c.creditLimitCents), " +
+            "max(c.creditLimitCents) from Customer c join c.address a group by a.postcode")
+    List<Object[]> aggregateCreditLimitsByPostcode();
+
+    /**
+     * Finds range of credit limits of customers of given source, read with index on source.
+     *
+     * @param source source of customers
+     * @return single array of min and max of credit limits in cents, nulls if there are no such customers
+     */
+    @Query("select min(c.creditLimitCents), max(c.creditLimitCents) from Customer c where c.source = :source")
+    List<Object[]> findCreditLimitRangeBySource(@Param("source") String source);
+
+    /**
+     * Finds range of credit limits of customers living at given postcode, addresses are read with index on location.
+     *
+     * @param postcode postcode of addresses
+     * @return single array of min and max of credit limits in cents, nulls if there are no such customers
+     */
+    @Query("select min(c.creditLimitCents), max(c.creditLimitCents) from Customer c join c.address a " +
+            "where a.postcode = :postcode")
+    List<Object[]> findCreditLimitRangeByPostcode(@Param("postcode") String postcode);
 
+    /**
+     * Reads fields of customer which are counted in statistics, as they are stored in DB. Persistence context is not
+     * flushed before the query, so changes of managed customer which were not saved yet are not read.
+     *
+     * @param id id of customer
+     * @return single array of source, postcode and credit limit in cents, empty if customer is not stored
+     */
+    @Query("select c.source, a.postcode, c.creditLimitCents from Customer c join c.address a where c.id = :id")
+    @QueryHints(@QueryHint(name = "org.hibernate.flushMode", value = "COMMIT"))
+    List<Object[]> findStatisticsFieldsById(@Param("id") long id);
 }
@@ -0,0 +1,19 @@
+package com.herbet.ffm.repository;
+
+import com.herbet.ffm.entity.ImportCheckpoint;
+import org.springframework.data.repository.CrudRepository;
+
+/**
+ * CRUD Repository for ImportCheckpoint used as DAO.
+ */
+public interface ImportCheckpointRepository extends CrudRepository<ImportCheckpoint, Long> {
+
+    /**
+     * Finds checkpoint of upload of file with given content from given source.
+     *
+     * @param fileHash hash of file content
+     * @param fileName name of file, used as source of customers
+     * @return checkpoint of upload or null if there is no unfinished upload of such file
+     */
+    ImportCheckpoint findFirstByFileHashAndFileName(String fileHash, String fileName);
+}
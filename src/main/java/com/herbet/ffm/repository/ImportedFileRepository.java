@@ -0,0 +1,19 @@
+package com.herbet.ffm.repository;
+
+import com.herbet.ffm.entity.ImportedFile;
+import org.springframework.data.repository.CrudRepository;
+
+/**
+ * CRUD Repository for ImportedFile used as DAO.
+ */
+public interface ImportedFileRepository extends CrudRepository<ImportedFile, Long> {
+
+    /**
+     * Finds fingerprint of file with given content uploaded from given source.
+     *
+     * @param fileHash hash of file content
+     * @param fileName name of file, used as source of customers
+     * @return fingerprint of file or null if such file was not uploaded
+     */
+    ImportedFile findFirstByFileHashAndFileName(String fileHash, String fileName);
+}
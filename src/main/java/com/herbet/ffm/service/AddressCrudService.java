@@ -2,8 +2,20 @@ package com.herbet.ffm.service;
 
 import com.herbet.ffm.entity.Address;
 import com.herbet.ffm.repository.AddressRepository;
+import org.hibernate.PessimisticLockException;
+import org.hibernate.Session;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Connection;
+import java.sql.Savepoint;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 
 /**
  * Service used for persisting Address objects. Additional layer between DAO and application logic.
@@ -14,6 +26,9 @@ public class AddressCrudService {
     @Autowired
     private AddressRepository repository;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
     public Address findOne(Long id) {
         return repository.findOne(id);
     }
@@ -22,6 +37,25 @@ public class AddressCrudService {
         return repository.findAll();
     }
 
+    /**
+     * Finds page of addresses following address with given id. One address more than page size is read to find out
+     * if there is next page.
+     *
+     * @param afterId id of last address of previous page, 0 for first page
+     * @param size number of addresses on page
+     * @return page of addresses
+     */
+    public AddressPage findPageAfter(long afterId, int size) {
+        List<Address> addresses = repository.findByIdGreaterThanOrderByIdAsc(afterId, new PageRequest(0, size + 1));
+
+        boolean hasNext = addresses.size() > size;
+        if (hasNext) {
+            addresses = addresses.subList(0, size);
+        }
+
+        return new AddressPage(addresses, hasNext);
+    }
+
     public Address save(Address address) {
         return repository.save(address);
     }
@@ -41,13 +75,42 @@ public class AddressCrudService {
      * @return if address with the same location that exist in DB then address from DB; ; address param otherwise.
      */
     public Address findSameAddress(Address address) {
+        Address existingAddress = repository.findByStreetAndPostcode(address.getStreet(), address.getPostcode());
+
+        return existingAddress != null ? existingAddress : address;
+    }
+
+    /**
+     * Finds address with the same location in DB or saves given address in current transaction. Concurrent
+     * transaction may have inserted the same location without committing it yet, so new address is inserted under
+     * savepoint and only the insert is rolled back if the location is taken or still locked by other transaction.
+     * Pending changes of persistence context are flushed before savepoint, so they are not rolled back with it.
+     *
+     * @param address address to check
+     * @return address with the same location, null if location is inserted by concurrent transaction and it has to be
+     * looked up again
+     */
+    @Transactional
+    public Address findOrCreate(Address address) {
+        Address existingAddress = findSameAddress(address);
+        if (existingAddress != address) {
+            return existingAddress;
+        }
 
-        // TODO in production application it should be reimplemented to use DB query and not extract all orders
-        for (Address existingAddress : findAll()) {
-            if (address.isSameLocation(existingAddress)) {
-                return existingAddress;
-            }
+        // native session does not mark transaction for rollback when flush fails, unlike entity manager
+        Session session = entityManager.unwrap(Session.class);
+        session.flush();
+        Savepoint savepoint = session.doReturningWork(Connection::setSavepoint);
+        try {
+            session.persist(address);
+            session.flush();
+        } catch (ConstraintViolationException | PessimisticLockException e) {
+            session.doWork(connection -> connection.rollback(savepoint));
+            session.evict(address);
+            address.setId(0);
+            return null;
         }
+        session.doWork(connection -> connection.releaseSavepoint(savepoint));
         return address;
     }
 }
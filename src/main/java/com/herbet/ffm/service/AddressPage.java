@@ -0,0 +1,35 @@
+package com.herbet.ffm.service;
+
+import com.herbet.ffm.entity.Address;
+
+import java.util.List;
+
+/**
+ * Page of addresses in order of ids, found by seeking id of last address of previous page.
+ */
+public class AddressPage {
+
+    private final List<Address> addresses;
+
+    private final boolean hasNext;
+
+    public AddressPage(List<Address> addresses, boolean hasNext) {
+        this.addresses = addresses;
+        this.hasNext = hasNext;
+    }
+
+    public List<Address> getAddresses() {
+        return addresses;
+    }
+
+    public boolean isHasNext() {
+        return hasNext && !addresses.isEmpty();
+    }
+
+    /**
+     * @return id of last address on page, used to seek next page, null if page is empty
+     */
+    public Long getLastId() {
+        return addresses.isEmpty() ? null : addresses.get(addresses.size() - 1).getId();
+    }
+}
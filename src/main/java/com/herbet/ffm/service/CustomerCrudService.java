@@ -1,9 +1,41 @@
 package com.herbet.ffm.service;
 
+import com.herbet.ffm.config.CacheConfiguration;
+import com.herbet.ffm.dto.CustomerSearch;
+import com.herbet.ffm.dto.CustomerView;
+import com.herbet.ffm.entity.Address;
 import com.herbet.ffm.entity.Customer;
 import com.herbet.ffm.repository.CustomerRepository;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
 
 /**
  * Service used for persisting Customer objects. Additional layer between DAO and application logic.
@@ -14,23 +46,275 @@ public class CustomerCrudService {
     @Autowired
     private CustomerRepository repository;
 
+    @Autowired
+    private ImportedFileCrudService importedFileCrudService;
+
+    @Autowired
+    private ImportCheckpointCrudService importCheckpointCrudService;
+
+    @Autowired
+    private CustomerStatisticsService customerStatisticsService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Finds customer together with its address. Found customers are cached, so returned customer is detached and
+     * shared, it should not be modified.
+     *
+     * @param id id of customer
+     * @return customer with initialized address or null if there is no such customer
+     */
+    @Cacheable(cacheNames = CacheConfiguration.CUSTOMERS_CACHE, unless = "#result == null")
     public Customer findOne(Long id) {
-        return repository.findOne(id);
+        return repository.findWithAddressById(id);
     }
 
     public Iterable<Customer> findAll() {
         return repository.findAll();
     }
 
+    /**
+     * Finds page of views of customers following customer with given id. One customer more than page size is read to
+     * find out if there is next page.
+     *
+     * @param afterId id of last customer of previous page, 0 for first page
+     * @param size number of customers on page
+     * @return page of customers
+     */
+    @Transactional(readOnly = true)
+    public CustomerPage findPageAfter(long afterId, int size) {
+        List<CustomerView> customers = repository.findViewsAfter(afterId, new PageRequest(0, size + 1));
+
+        boolean hasNext = customers.size() > size;
+        if (hasNext) {
+            customers = customers.subList(0, size);
+        }
+
+        return new CustomerPage(customers, afterId > 0, hasNext);
+    }
+
+    /**
+     * Finds page of views of customers preceding customer with given id. If there are less customers than page size
+     * before given id then first page is returned.
+     *
+     * @param beforeId id of first customer of next page
+     * @param size number of customers on page
+     * @return page of customers
+     */
+    @Transactional(readOnly = true)
+    public CustomerPage findPageBefore(long beforeId, int size) {
+        List<CustomerView> customers = repository.findViewsBefore(beforeId, new PageRequest(0, size + 1));
+
+        if (customers.size() <= size) {
+            return findPageAfter(0, size);
+        }
+
+        customers = customers.subList(0, size);
+        Collections.reverse(customers);
+
+        return new CustomerPage(customers, true, true);
+    }
+
+    @CacheEvict(cacheNames = CacheConfiguration.CUSTOMERS_CACHE, key = "#result.id")
+    @Transactional
     public Customer save(Customer customer) {
-        return repository.save(customer);
+        if (customer.getId() != 0) {
+            // managed customer may already hold new fields, so stored ones are read by query
+            for (Object[] row : repository.findStatisticsFieldsById(customer.getId())) {
+                customerStatisticsService.customerRemoved((String) row[0], (String) row[1], (Long) row[2]);
+            }
+        }
+        Customer savedCustomer = repository.save(customer);
+        customerStatisticsService.customerAdded(savedCustomer);
+        // stored fields have to be the counted ones when the same customer is saved again in this transaction
+        entityManager.flush();
+        return savedCustomer;
+    }
+
+    /**
+     * Saves batch of customers. Inserts are sent to DB as JDBC batch and saved customers (with their addresses) are
+     * detached afterwards, so persistence context does not grow with number of saved batches.
+     *
+     * @param customers customers to save
+     */
+    @Transactional
+    public void saveBatch(Iterable<Customer> customers) {
+        repository.save(customers);
+        customers.forEach(customerStatisticsService::customerAdded);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    /**
+     * Finds hashes of rows from which customers of given source were created.
+     *
+     * @param source source of customers
+     * @return sorted hashes of rows, may contain duplicates
+     */
+    @Transactional(readOnly = true)
+    public long[] findRowHashes(String source) {
+        try (Stream<Long> rowHashes = repository.streamRowHashes(source)) {
+            long[] sortedHashes = rowHashes.mapToLong(Long::longValue).toArray();
+            Arrays.sort(sortedHashes);
+            return sortedHashes;
+        }
+    }
+
+    /**
+     * Finds views of customers matching all given criteria, sorted and limited in DB. Every criterion can be served
+     * by index: last name prefix by natural key index, postcode by location index of address and ranges by indexes of
+     * birthday and credit limit.
+     *
+     * @param search criteria of search
+     * @param limit maximal number of found customers
+     * @return views of found customers
+     */
+    @Transactional(readOnly = true)
+    public List<CustomerView> search(CustomerSearch search, int limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CustomerView> query = builder.createQuery(CustomerView.class);
+        Root<Customer> customer = query.from(Customer.class);
+        Join<Customer, Address> address = customer.join("address");
+
+        query.select(builder.construct(CustomerView.class, customer.get("id"), customer.get("firstName"),
+                                       customer.get("lastName"), address.get("street"), address.get("postcode"),
+                                       customer.get("phone"), customer.get("creditLimitCents"),
+                                       customer.get("birthday"), customer.get("source")));
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (StringUtils.isNotBlank(search.getLastName())) {
+            // prefix is matched literally, so wildcards typed by user are escaped
+            String prefix = search.getLastName().trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+            predicates.add(builder.like(customer.get("lastName"), prefix + "%", '\\'));
+        }
+        if (StringUtils.isNotBlank(search.getPostcode())) {
+            predicates.add(builder.equal(address.get("postcode"), search.getPostcode().trim()));
+        }
+        if (search.getBirthdayFrom() != null) {
+            predicates.add(builder.greaterThanOrEqualTo(customer.get("birthday"),
+                                                        Date.valueOf(search.getBirthdayFrom())));
+        }
+        if (search.getBirthdayTo() != null) {
+            predicates.add(builder.lessThanOrEqualTo(customer.get("birthday"), Date.valueOf(search.getBirthdayTo())));
+        }
+        if (search.getCreditLimitFrom() != null) {
+            predicates.add(builder.greaterThanOrEqualTo(customer.get("creditLimitCents"),
+                                                        cents(search.getCreditLimitFrom(), RoundingMode.CEILING)));
+        }
+        if (search.getCreditLimitTo() != null) {
+            predicates.add(builder.lessThanOrEqualTo(customer.get("creditLimitCents"),
+                                                     cents(search.getCreditLimitTo(), RoundingMode.FLOOR)));
+        }
+        query.where(predicates.toArray(new Predicate[predicates.size()]));
+
+        // id makes order of customers with the same sorted value stable
+        String sortAttribute = search.getSort().getAttribute();
+        if (search.isDescending()) {
+            query.orderBy(builder.desc(customer.get(sortAttribute)), builder.desc(customer.get("id")));
+        } else {
+            query.orderBy(builder.asc(customer.get(sortAttribute)), builder.asc(customer.get("id")));
+        }
+
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    private static long cents(BigDecimal amount, RoundingMode roundingMode) {
+        return amount.movePointRight(2).setScale(0, roundingMode).longValue();
+    }
+
+    /**
+     * Finds ids of stored customers with the same natural key as given customers. Only values of given customers are
+     * looked up, names and birthday with index of natural key, so the cost depends on size of the batch and not on
+     * number of stored customers.
+     *
+     * @param naturalKey fields identifying customer
+     * @param customers customers with persisted addresses
+     * @return ids of stored customers by their keys, the last customer is kept if there are more with the same key
+     */
+    @Transactional(readOnly = true)
+    public Map<Object, Long> findIdsByNaturalKey(NaturalKey naturalKey, Collection<Customer> customers) {
+        Set<Object> keys = new HashSet<>();
+        Set<String> lastNames = new HashSet<>();
+        Set<String> firstNames = new HashSet<>();
+        Set<Date> birthdays = new HashSet<>();
+        Set<Long> addressIds = new HashSet<>();
+        for (Customer customer : customers) {
+            keys.add(naturalKey.of(customer));
+            lastNames.add(customer.getLastName());
+            firstNames.add(customer.getFirstName());
+            // dates are compared by day, whatever time of day they were read with
+            birthdays.add(Date.valueOf(customer.getBirthday().toLocalDate()));
+            addressIds.add(customer.getAddress().getId());
+        }
+
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = builder.createQuery(Object[].class);
+        Root<Customer> customer = query.from(Customer.class);
+        // id of address is foreign key of customer, so address is not joined
+        Path<Long> addressId = customer.get("address").get("id");
+
+        query.multiselect(customer.get("id"), customer.get("lastName"), customer.get("firstName"),
+                          customer.get("birthday"), addressId);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (naturalKey.contains(NaturalKey.Field.LAST_NAME)) {
+            predicates.add(customer.get("lastName").in(lastNames));
+        }
+        if (naturalKey.contains(NaturalKey.Field.FIRST_NAME)) {
+            predicates.add(customer.get("firstName").in(firstNames));
+        }
+        if (naturalKey.contains(NaturalKey.Field.BIRTHDAY)) {
+            predicates.add(customer.get("birthday").in(birthdays));
+        }
+        if (naturalKey.contains(NaturalKey.Field.ADDRESS)) {
+            predicates.add(addressId.in(addressIds));
+        }
+        query.where(predicates.toArray(new Predicate[predicates.size()]));
+        query.orderBy(builder.asc(customer.get("id")));
+
+        Map<Object, Long> ids = new HashMap<>();
+        for (Object[] row : entityManager.createQuery(query).getResultList()) {
+            // every field is matched separately, so fields of different customers of batch may be combined
+            Object key = naturalKey.of((String) row[1], (String) row[2], (Date) row[3], (Long) row[4]);
+            if (keys.contains(key)) {
+                ids.put(key, (Long) row[0]);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Applies changes to stored customers. Changed customers are loaded with their addresses in one query and only
+     * their changed columns are updated, then they are detached.
+     *
+     * @param changes new fields of customers by ids of customers
+     */
+    @Transactional
+    public void updateBatch(Map<Long, Customer> changes) {
+        for (Customer customer : repository.findWithAddressByIdIn(changes.keySet())) {
+            customerStatisticsService.customerRemoved(customer);
+            customer.copyFieldsFrom(changes.get(customer.getId()));
+            customerStatisticsService.customerAdded(customer);
+        }
+        entityManager.flush();
+        entityManager.clear();
     }
 
     public long count() {
         return repository.count();
     }
 
+    /**
+     * Removes all customers together with fingerprints of files from which they were loaded and checkpoints of
+     * unfinished uploads, so the same files are uploaded again from their first line.
+     */
+    @CacheEvict(cacheNames = CacheConfiguration.CUSTOMERS_CACHE, allEntries = true)
+    @Transactional
     public void deleteAll() {
         repository.deleteAll();
+        customerStatisticsService.allRemoved();
+        importedFileCrudService.deleteAll();
+        importCheckpointCrudService.deleteAll();
     }
 }
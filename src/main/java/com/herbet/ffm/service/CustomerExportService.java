@@ -0,0 +1,146 @@
+package com.herbet.ffm.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.herbet.ffm.dto.CustomerView;
+import com.herbet.ffm.parser.PrnLayout;
+import com.herbet.ffm.repository.CustomerRepository;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Service writing all customers in csv and prn format accepted by upload. Customers are streamed from DB and written
+ * one by one, so memory usage does not depend on number of customers.
+ */
+@Service
+public class CustomerExportService {
+
+    private static final String CSV_HEADER = "Name,Address,Postcode,Phone,Credit Limit,Birthday";
+
+    @Autowired
+    private CustomerRepository repository;
+
+    @Autowired
+    private PrnLayout prnLayout;
+
+    @Value("${csv.format.date}")
+    private String csvDateFormat;
+
+    @Value("${prn.format.date}")
+    private String prnDateFormat;
+
+    /**
+     * Writes header and all customers in csv format.
+     *
+     * @param writer writer of exported file, it is not closed
+     * @return number of written customers
+     * @throws IOException
+     */
+    @Transactional(readOnly = true)
+    public long exportCsv(Writer writer) throws IOException {
+        DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern(csvDateFormat);
+        StringBuilder line = new StringBuilder(128);
+        long customers = 0;
+
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+
+        try (Stream<CustomerView> views = repository.streamAllViews()) {
+            Iterator<CustomerView> iterator = views.iterator();
+            while (iterator.hasNext()) {
+                CustomerView view = iterator.next();
+
+                line.setLength(0);
+                line.append('"').append(view.getLastName()).append(", ").append(view.getFirstName()).append("\",");
+                line.append(view.getStreet()).append(',').append(view.getPostcode()).append(',');
+                line.append(view.getPhone()).append(',');
+                // shortest exact form, like "10000" or "54.5"
+                line.append(view.getCreditLimit().stripTrailingZeros().toPlainString()).append(',');
+                line.append(dateFormat.format(view.getBirthday().toLocalDate())).append('\n');
+
+                writer.append(line);
+                customers++;
+            }
+        }
+
+        return customers;
+    }
+
+    /**
+     * Writes header and all customers in prn format, columns are placed at offsets of prn layout.
+     *
+     * @param writer writer of exported file, it is not closed
+     * @return number of written customers
+     * @throws IOException
+     */
+    @Transactional(readOnly = true)
+    public long exportPrn(Writer writer) throws IOException {
+        DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern(prnDateFormat);
+        StringBuilder line = new StringBuilder(128);
+        long customers = 0;
+
+        prnLayout.appendHeader(line);
+        writer.append(line).append('\n');
+
+        try (Stream<CustomerView> views = repository.streamAllViews()) {
+            Iterator<CustomerView> iterator = views.iterator();
+            while (iterator.hasNext()) {
+                CustomerView view = iterator.next();
+
+                line.setLength(0);
+                prnLayout.appendLine(line, view.getLastName() + ", " + view.getFirstName(), view.getStreet(),
+                                     view.getPostcode(), view.getPhone(), prnCreditLimit(view.getCreditLimitCents()),
+                                     dateFormat.format(view.getBirthday().toLocalDate()));
+                writer.append(line).append('\n');
+                customers++;
+            }
+        }
+
+        return customers;
+    }
+
+    /**
+     * Writes all customers as JSON array. Views are serialized one by one as they are read from DB cursor, so whole
+     * array is never built in memory.
+     *
+     * @param generator generator of response body, it is flushed but not closed
+     * @return number of written customers
+     * @throws IOException
+     */
+    @Transactional(readOnly = true)
+    public long exportJson(JsonGenerator generator) throws IOException {
+        long customers = 0;
+
+        generator.writeStartArray();
+        try (Stream<CustomerView> views = repository.streamAllViews()) {
+            Iterator<CustomerView> iterator = views.iterator();
+            while (iterator.hasNext()) {
+                generator.writeObject(iterator.next());
+                customers++;
+            }
+        }
+        generator.writeEndArray();
+        generator.flush();
+
+        return customers;
+    }
+
+    /**
+     * Formats credit limit as cents with at least 3 digits, as upload treats last 2 digits of such value as cents and
+     * shorter values as whole units.
+     */
+    private static String prnCreditLimit(long cents) {
+        if (cents < 0) {
+            return "-" + StringUtils.leftPad(Long.toString(-cents), 2, '0');
+        }
+        return StringUtils.leftPad(Long.toString(cents), 3, '0');
+    }
+}
@@ -0,0 +1,23 @@
+package com.herbet.ffm.service;
+
+import com.herbet.ffm.entity.Customer;
+import com.herbet.ffm.exception.ApplicationException;
+
+/**
+ * Parser creating customer from single line of uploaded file. Implementations have to be thread safe, lines of one
+ * file can be parsed in parallel.
+ */
+@FunctionalInterface
+interface CustomerLineParser {
+
+    /**
+     * Creates customer from line with customer data. Customer and its address are not persisted, hash of row is set
+     * by caller, which computes it anyway to skip rows already loaded.
+     *
+     * @param line line with customer data
+     * @param fileName name of uploaded file
+     * @return customer created from line
+     * @throws ApplicationException if line has incorrect format
+     */
+    Customer parse(CharSequence line, String fileName) throws ApplicationException;
+}
@@ -0,0 +1,17 @@
+package com.herbet.ffm.service;
+
+/**
+ * Checks single line of uploaded file without creating customer. Implementations have to be thread safe and must
+ * not throw exceptions for incorrect lines, so lines of whole file can be checked in parallel at low cost.
+ */
+@FunctionalInterface
+interface CustomerLineValidator {
+
+    /**
+     * Checks line with customer data, all fields are checked like by parser of lines.
+     *
+     * @param line line with customer data
+     * @return description of error, the same as message of exception thrown by parser, or null if line is correct
+     */
+    String validate(CharSequence line);
+}
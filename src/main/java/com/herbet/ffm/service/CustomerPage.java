@@ -0,0 +1,49 @@
+package com.herbet.ffm.service;
+
+import com.herbet.ffm.dto.CustomerView;
+
+import java.util.List;
+
+/**
+ * Page of customers in order of ids, found by seeking id of neighbouring page.
+ */
+public class CustomerPage {
+
+    private final List<CustomerView> customers;
+
+    private final boolean hasPrevious;
+
+    private final boolean hasNext;
+
+    public CustomerPage(List<CustomerView> customers, boolean hasPrevious, boolean hasNext) {
+        this.customers = customers;
+        this.hasPrevious = hasPrevious;
+        this.hasNext = hasNext;
+    }
+
+    public List<CustomerView> getCustomers() {
+        return customers;
+    }
+
+    public boolean isHasPrevious() {
+        return hasPrevious && !customers.isEmpty();
+    }
+
+    public boolean isHasNext() {
+        return hasNext && !customers.isEmpty();
+    }
+
+    /**
+     * @return id of first customer on page, used to seek previous page, null if page is empty
+     */
+    public Long getFirstId() {
+        return customers.isEmpty() ? null : customers.get(0).getId();
+    }
+
+    /**
+     * @return id of last customer on page, used to seek next page, null if page is empty
+     */
+    public Long getLastId() {
+        return customers.isEmpty() ? null : customers.get(customers.size() - 1).getId();
+    }
+}
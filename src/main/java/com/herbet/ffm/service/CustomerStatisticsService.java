@@ -0,0 +1,293 @@
+package com.herbet.ffm.service;
+
+import com.herbet.ffm.dto.CreditLimitStatistics;
+import com.herbet.ffm.entity.Customer;
+import com.herbet.ffm.repository.CustomerRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Keeps number of customers and their credit limits aggregated by sources and by postcodes. Aggregates are read from
+ * DB once, at startup, and then changed by every saved, updated and deleted customer, so reports cost O(groups)
+ * instead of scan of all customers.
+ * <p>
+ * Changes made in transaction are collected and applied only after commit, so rolled back uploads do not change
+ * aggregates. Count and total are exact, min and max can not be undone when customer is removed, so the group is
+ * marked and its range is read again (with index) on next report. Ranges are read without holding the lock, so commits
+ * of uploads are not blocked by report queries.
+ */
+@Service
+public class CustomerStatisticsService {
+
+    @Autowired
+    private CustomerRepository repository;
+
+    // aggregates by group in order of groups, guarded by this
+    private final Map<String, Aggregate> sources = new TreeMap<>();
+
+    private final Map<String, Aggregate> postcodes = new TreeMap<>();
+
+    @PostConstruct
+    public synchronized void load() {
+        sources.clear();
+        postcodes.clear();
+        repository.aggregateCreditLimitsBySource().forEach(row -> sources.put((String) row[0], Aggregate.of(row)));
+        repository.aggregateCreditLimitsByPostcode().forEach(row -> postcodes.put((String) row[0], Aggregate.of(row)));
+    }
+
+    /**
+     * @return statistics of customers of every source, in order of sources
+     */
+    public List<CreditLimitStatistics> findBySource() {
+        return statistics(sources, repository::findCreditLimitRangeBySource);
+    }
+
+    /**
+     * @return statistics of customers living at every postcode, in order of postcodes
+     */
+    public List<CreditLimitStatistics> findByPostcode() {
+        return statistics(postcodes, repository::findCreditLimitRangeByPostcode);
+    }
+
+    /**
+     * Counts customer inserted or updated in current transaction.
+     *
+     * @param customer customer with its current fields and address
+     */
+    void customerAdded(Customer customer) {
+        record(changes -> changes.add(customer));
+    }
+
+    /**
+     * Counts customer deleted or about to be updated in current transaction.
+     *
+     * @param customer customer with fields and address stored in DB
+     */
+    void customerRemoved(Customer customer) {
+        customerRemoved(customer.getSource(), customer.getAddress().getPostcode(), customer.getCreditLimitCents());
+    }
+
+    /**
+     * Counts customer deleted or about to be updated in current transaction.
+     *
+     * @param source source of customer stored in DB
+     * @param postcode postcode of address of customer stored in DB
+     * @param creditLimitCents credit limit of customer stored in DB, in cents
+     */
+    void customerRemoved(String source, String postcode, long creditLimitCents) {
+        record(changes -> changes.remove(source, postcode, creditLimitCents));
+    }
+
+    /**
+     * Drops aggregates of all customers when they are deleted in current transaction.
+     */
+    void allRemoved() {
+        record(Changes::reset);
+    }
+
+    private void record(Consumer<Changes> change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            Changes changes = new Changes();
+            change.accept(changes);
+            apply(changes);
+            return;
+        }
+
+        // one set of changes per transaction, bound to transaction like connections are
+        Changes changes = (Changes) TransactionSynchronizationManager.getResource(this);
+        if (changes == null) {
+            Changes transactionChanges = new Changes();
+            TransactionSynchronizationManager.bindResource(this, transactionChanges);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CustomerStatisticsService.this);
+                    if (status == STATUS_COMMITTED) {
+                        apply(transactionChanges);
+                    }
+                }
+            });
+            changes = transactionChanges;
+        }
+        change.accept(changes);
+    }
+
+    private synchronized void apply(Changes changes) {
+        if (changes.reset) {
+            sources.clear();
+            postcodes.clear();
+        }
+        apply(sources, changes.removedSources, changes.addedSources);
+        apply(postcodes, changes.removedPostcodes, changes.addedPostcodes);
+    }
+
+    private static void apply(Map<String, Aggregate> aggregates, Map<String, Aggregate> removed,
+                              Map<String, Aggregate> added) {
+        removed.forEach((group, aggregate) -> {
+            Aggregate current = aggregates.get(group);
+            if (current != null) {
+                current.remove(aggregate);
+                if (current.count <= 0) {
+                    aggregates.remove(group);
+                }
+            }
+        });
+        added.forEach((group, aggregate) -> aggregates.computeIfAbsent(group, key -> new Aggregate()).add(aggregate));
+    }
+
+    private List<CreditLimitStatistics> statistics(Map<String, Aggregate> aggregates,
+                                                   Function<String, List<Object[]>> rangeQuery) {
+        // stale groups are copied under lock with number of their removals, ranges are read outside of it
+        Map<String, Aggregate> staleAggregates = new HashMap<>();
+        Map<String, Long> staleRemovals = new HashMap<>();
+        synchronized (this) {
+            aggregates.forEach((group, aggregate) -> {
+                if (aggregate.rangeStale) {
+                    staleAggregates.put(group, aggregate);
+                    staleRemovals.put(group, aggregate.removals);
+                }
+            });
+        }
+
+        Map<String, Object[]> ranges = new HashMap<>();
+        staleAggregates.keySet().forEach(group -> ranges.put(group, rangeQuery.apply(group).get(0)));
+
+        synchronized (this) {
+            ranges.forEach((group, range) -> {
+                Aggregate aggregate = aggregates.get(group);
+                // range read while customer of group was removed may still contain it, so group stays stale then
+                if (range[0] != null && aggregate == staleAggregates.get(group)
+                    && aggregate.removals == staleRemovals.get(group)) {
+                    aggregate.setRange((Long) range[0], (Long) range[1]);
+                }
+            });
+
+            List<CreditLimitStatistics> statistics = new ArrayList<>(aggregates.size());
+            aggregates.forEach((group, aggregate) -> statistics.add(
+                    new CreditLimitStatistics(group, aggregate.count, aggregate.totalCents, aggregate.minCents,
+                                              aggregate.maxCents)));
+            return statistics;
+        }
+    }
+
+    /**
+     * Number of customers and sum and range of their credit limits in cents.
+     */
+    private static final class Aggregate {
+
+        private long count;
+
+        private long totalCents;
+
+        private long minCents = Long.MAX_VALUE;
+
+        private long maxCents = Long.MIN_VALUE;
+
+        // true if customer with min or max credit limit was removed, so range has to be read from DB
+        private boolean rangeStale;
+
+        // number of removals of customers from group, range read from DB is used only if it did not change meanwhile
+        private long removals;
+
+        // range of credit limits added since the last removal, they may be committed after range was read from DB
+        private long addedMinCents = Long.MAX_VALUE;
+
+        private long addedMaxCents = Long.MIN_VALUE;
+
+        static Aggregate of(Object[] row) {
+            Aggregate aggregate = new Aggregate();
+            aggregate.count = (Long) row[1];
+            aggregate.totalCents = (Long) row[2];
+            aggregate.minCents = (Long) row[3];
+            aggregate.maxCents = (Long) row[4];
+            return aggregate;
+        }
+
+        void add(long cents) {
+            count++;
+            totalCents += cents;
+            minCents = Math.min(minCents, cents);
+            maxCents = Math.max(maxCents, cents);
+            addedMinCents = Math.min(addedMinCents, cents);
+            addedMaxCents = Math.max(addedMaxCents, cents);
+        }
+
+        void add(Aggregate other) {
+            count += other.count;
+            totalCents += other.totalCents;
+            minCents = Math.min(minCents, other.minCents);
+            maxCents = Math.max(maxCents, other.maxCents);
+            addedMinCents = Math.min(addedMinCents, other.minCents);
+            addedMaxCents = Math.max(addedMaxCents, other.maxCents);
+        }
+
+        void remove(Aggregate removed) {
+            count -= removed.count;
+            totalCents -= removed.totalCents;
+            if (removed.minCents <= minCents || removed.maxCents >= maxCents) {
+                rangeStale = true;
+            }
+            removals++;
+            addedMinCents = Long.MAX_VALUE;
+            addedMaxCents = Long.MIN_VALUE;
+        }
+
+        /**
+         * Sets range read from DB. Customers added after the last removal are counted too, they may be committed
+         * after range was read and counting the same customer twice does not change min and max.
+         */
+        void setRange(long dbMinCents, long dbMaxCents) {
+            minCents = Math.min(dbMinCents, addedMinCents);
+            maxCents = Math.max(dbMaxCents, addedMaxCents);
+            rangeStale = false;
+        }
+    }
+
+    /**
+     * Changes of aggregates made by one transaction.
+     */
+    private static final class Changes {
+
+        // true if all customers were deleted before changes were made
+        private boolean reset;
+
+        private final Map<String, Aggregate> addedSources = new HashMap<>();
+
+        private final Map<String, Aggregate> removedSources = new HashMap<>();
+
+        private final Map<String, Aggregate> addedPostcodes = new HashMap<>();
+
+        private final Map<String, Aggregate> removedPostcodes = new HashMap<>();
+
+        void add(Customer customer) {
+            long cents = customer.getCreditLimitCents();
+            addedSources.computeIfAbsent(customer.getSource(), key -> new Aggregate()).add(cents);
+            addedPostcodes.computeIfAbsent(customer.getAddress().getPostcode(), key -> new Aggregate()).add(cents);
+        }
+
+        void remove(String source, String postcode, long cents) {
+            removedSources.computeIfAbsent(source, key -> new Aggregate()).add(cents);
+            removedPostcodes.computeIfAbsent(postcode, key -> new Aggregate()).add(cents);
+        }
+
+        void reset() {
+            reset = true;
+            addedSources.clear();
+            removedSources.clear();
+            addedPostcodes.clear();
+            removedPostcodes.clear();
+        }
+    }
+}
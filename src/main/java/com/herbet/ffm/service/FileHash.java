@@ -0,0 +1,59 @@
+package com.herbet.ffm.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Hash of file content, used to recognize file uploaded again.
+ */
+final class FileHash {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private FileHash() {
+    }
+
+    /**
+     * @param path path of file
+     * @return SHA-256 of file content as 64 hex digits
+     * @throws IOException
+     */
+    static String sha256(Path path) throws IOException {
+        try (InputStream input = Files.newInputStream(path)) {
+            return sha256(input);
+        }
+    }
+
+    /**
+     * @param input stream of file content, it is read to the end but not closed
+     * @return SHA-256 of file content as 64 hex digits
+     * @throws IOException
+     */
+    static String sha256(InputStream input) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException nsae) {
+            // every Java platform supports SHA-256
+            throw new IllegalStateException(nsae);
+        }
+
+        byte[] buffer = new byte[1 << 16];
+        int read;
+        while ((read = input.read(buffer)) > 0) {
+            digest.update(buffer, 0, read);
+        }
+
+        byte[] hash = digest.digest();
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX_DIGITS[hash[i] & 0xf];
+        }
+        return new String(hex);
+    }
+}
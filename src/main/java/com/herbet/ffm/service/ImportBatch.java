@@ -0,0 +1,47 @@
+package com.herbet.ffm.service;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Upload of many customers files sent at once, directly or in ZIP archives. Every file (or entry of archive) is
+ * uploaded by its own job, so result of every file is reported separately.
+ */
+public class ImportBatch {
+
+    private final String id;
+
+    private final List<ImportJob> jobs;
+
+    ImportBatch(String id, List<ImportJob> jobs) {
+        this.id = id;
+        this.jobs = Collections.unmodifiableList(jobs);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return jobs of files in order in which they were sent
+     */
+    public List<ImportJob> getJobs() {
+        return jobs;
+    }
+
+    public boolean isFinished() {
+        return jobs.stream().allMatch(ImportJob::isFinished);
+    }
+
+    public long getCompletedFiles() {
+        return jobs.stream().filter(job -> job.getStatus() == ImportJob.Status.COMPLETED).count();
+    }
+
+    public long getFailedFiles() {
+        return jobs.stream().filter(job -> job.getStatus() == ImportJob.Status.FAILED).count();
+    }
+
+    public long getRowsPersisted() {
+        return jobs.stream().mapToLong(ImportJob::getRowsPersisted).sum();
+    }
+}
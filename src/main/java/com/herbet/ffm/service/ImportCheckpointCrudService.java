@@ -0,0 +1,43 @@
+package com.herbet.ffm.service;
+
+import com.herbet.ffm.entity.ImportCheckpoint;
+import com.herbet.ffm.repository.ImportCheckpointRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service used for persisting ImportCheckpoint objects. Additional layer between DAO and application logic.
+ */
+@Service
+public class ImportCheckpointCrudService {
+
+    @Autowired
+    private ImportCheckpointRepository repository;
+
+    public ImportCheckpoint findOne(String fileHash, String fileName) {
+        return repository.findFirstByFileHashAndFileName(fileHash, fileName);
+    }
+
+    public ImportCheckpoint save(ImportCheckpoint checkpoint) {
+        return repository.save(checkpoint);
+    }
+
+    /**
+     * Removes checkpoint if it was saved.
+     *
+     * @param checkpoint checkpoint of upload
+     */
+    public void delete(ImportCheckpoint checkpoint) {
+        if (repository.exists(checkpoint.getId())) {
+            repository.delete(checkpoint.getId());
+        }
+    }
+
+    public long count() {
+        return repository.count();
+    }
+
+    public void deleteAll() {
+        repository.deleteAll();
+    }
+}
@@ -0,0 +1,239 @@
+package com.herbet.ffm.service;
+
+import com.herbet.ffm.entity.Address;
+import com.herbet.ffm.entity.Customer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * State of single upload of customers file. Created for every uploaded file and dropped when upload is finished.
+ */
+class ImportContext {
+
+    // name of file from which customers are loaded
+    private final String source;
+
+    // addresses already used in this upload, by location key
+    private final Map<String, Address> addresses = new HashMap<>();
+
+    // customers created from lines but not saved in DB yet
+    private final List<Customer> pendingCustomers;
+
+    // natural key of customers, null if customers are only inserted
+    private NaturalKey naturalKey;
+
+    // ids of customers by their keys, for keys already saved or found in DB by this upload
+    private final Map<Object, Long> customerIds = new HashMap<>();
+
+    // new customers not saved in DB yet by their keys, so the same person repeated in batch is inserted once
+    private final Map<Object, Customer> pendingCustomersByKey = new HashMap<>();
+
+    // new fields of stored customers not saved in DB yet, by ids of customers
+    private final Map<Long, Customer> pendingUpdates = new LinkedHashMap<>();
+
+    private final int batchSize;
+
+    // counters of processed rows, may be read by other threads
+    private final ImportProgress progress;
+
+    // time when upload was started, in nanoseconds
+    private final long startNanos = System.nanoTime();
+
+    // sorted hashes of rows loaded from the same source before this upload
+    private long[] knownRowHashes = new long[0];
+
+    // lines parsed since metrics were reported last time and time spent on parsing them
+    private int parsedLines;
+
+    private long parseNanos;
+
+    // lines skipped without parsing since metrics were reported last time
+    private int skippedLines;
+
+    ImportContext(String source, int batchSize, ImportProgress progress) {
+        this.source = source;
+        this.batchSize = batchSize;
+        this.progress = progress;
+        this.pendingCustomers = new ArrayList<>(batchSize);
+    }
+
+    String getSource() {
+        return source;
+    }
+
+    ImportProgress getProgress() {
+        return progress;
+    }
+
+    long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * Counts parsed lines in progress of upload and in parse time not reported to metrics yet.
+     *
+     * @param lines number of parsed lines
+     * @param nanos time spent on parsing them
+     */
+    void addParsedLines(int lines, long nanos) {
+        parsedLines += lines;
+        parseNanos += nanos;
+        progress.addParsedRows(lines);
+    }
+
+    int getParsedLines() {
+        return parsedLines;
+    }
+
+    long getParseNanos() {
+        return parseNanos;
+    }
+
+    /**
+     * Counts lines skipped without parsing (committed by previous attempt of upload or already loaded from the same
+     * source) in progress of upload and in lines not reported to metrics yet.
+     *
+     * @param lines number of skipped lines
+     */
+    void addSkippedLines(int lines) {
+        skippedLines += lines;
+        progress.addSkippedRows(lines);
+    }
+
+    int getSkippedLines() {
+        return skippedLines;
+    }
+
+    void resetReportedLines() {
+        parsedLines = 0;
+        parseNanos = 0;
+        skippedLines = 0;
+    }
+
+    void setKnownRowHashes(long[] knownRowHashes) {
+        this.knownRowHashes = knownRowHashes;
+    }
+
+    /**
+     * Checks if the same row was already loaded from the same source before this upload. Rows repeated in this upload
+     * are not known, so they are loaded as before. Known rows are not changed during upload, so rows may be checked
+     * by parsing threads.
+     *
+     * @param rowHash hash of line with customer data
+     * @return true if the same row was already loaded
+     */
+    boolean isKnownRow(long rowHash) {
+        return knownRowHashes.length > 0 && Arrays.binarySearch(knownRowHashes, rowHash) >= 0;
+    }
+
+    /**
+     * Returns address with the same location that was already used in this upload.
+     *
+     * @param address address to check
+     * @return address used in this upload or null if location was not used yet
+     */
+    Address getKnownAddress(Address address) {
+        return addresses.get(locationKey(address));
+    }
+
+    /**
+     * Remembers address, so next lines with the same location do not have to query DB.
+     *
+     * @param address persisted address
+     */
+    void addKnownAddress(Address address) {
+        addresses.put(locationKey(address), address);
+    }
+
+    /**
+     * Turns on upsert of customers, customers with the same natural key as stored or already added customers update
+     * them instead of being inserted.
+     *
+     * @param naturalKey fields identifying customer
+     */
+    void setUpsert(NaturalKey naturalKey) {
+        this.naturalKey = naturalKey;
+    }
+
+    /**
+     * @return natural key of customers or null if customers are only inserted
+     */
+    NaturalKey getNaturalKey() {
+        return naturalKey;
+    }
+
+    /**
+     * Adds customer to batch waiting to be saved. In upsert mode customer with the same natural key as customer
+     * already saved or found by this upload is added as update of that customer and customer with the same key as new
+     * customer replaces fields of new customer. Other customers are new until they are matched with stored customers
+     * before the batch is saved.
+     *
+     * @param customer customer created from line, with persisted address
+     * @return true if batch is full and should be saved
+     */
+    boolean addPendingCustomer(Customer customer) {
+        if (naturalKey == null) {
+            pendingCustomers.add(customer);
+        } else {
+            Object key = naturalKey.of(customer);
+            Long id = customerIds.get(key);
+            Customer pendingCustomer = pendingCustomersByKey.get(key);
+            if (id != null) {
+                pendingUpdates.put(id, customer);
+            } else if (pendingCustomer != null) {
+                pendingCustomer.copyFieldsFrom(customer);
+            } else {
+                pendingCustomersByKey.put(key, customer);
+                pendingCustomers.add(customer);
+            }
+        }
+        return pendingCustomers.size() + pendingUpdates.size() >= batchSize;
+    }
+
+    /**
+     * Turns new customers of batch which are already stored into updates of stored customers. Ids of stored customers
+     * are remembered, so their keys are not looked up again by this upload.
+     *
+     * @param storedIds ids of stored customers by keys of new customers of batch
+     */
+    void matchStoredCustomers(Map<Object, Long> storedIds) {
+        if (storedIds.isEmpty()) {
+            return;
+        }
+        storedIds.forEach((key, id) -> {
+            pendingUpdates.put(id, pendingCustomersByKey.remove(key));
+            customerIds.put(key, id);
+        });
+        pendingCustomers.removeIf(customer -> !pendingCustomersByKey.containsKey(naturalKey.of(customer)));
+    }
+
+    List<Customer> getPendingCustomers() {
+        return pendingCustomers;
+    }
+
+    Map<Long, Customer> getPendingUpdates() {
+        return pendingUpdates;
+    }
+
+    /**
+     * Clears batch after it was saved. In upsert mode ids of saved customers are added to hash index.
+     */
+    void clearPendingCustomers() {
+        if (naturalKey != null) {
+            pendingCustomersByKey.forEach((key, customer) -> customerIds.put(key, customer.getId()));
+            pendingCustomersByKey.clear();
+            pendingUpdates.clear();
+        }
+        pendingCustomers.clear();
+    }
+
+    static String locationKey(Address address) {
+        // line separator can not be part of any field, so it is safe to use it as delimiter
+        return address.getPostcode() + '\n' + address.getStreet();
+    }
+}
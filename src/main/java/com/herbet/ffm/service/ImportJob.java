@@ -0,0 +1,103 @@
+package com.herbet.ffm.service;
+
+/**
+ * Upload of customers file running in background. Status and progress of job are updated by thread running the
+ * upload and can be read by any thread.
+ */
+public class ImportJob {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private final String id;
+
+    private final String fileName;
+
+    private final ImportProgress progress = new ImportProgress();
+
+    private volatile Status status = Status.QUEUED;
+
+    // times in milliseconds, 0 until job is started or finished
+    private volatile long startTime;
+
+    private volatile long finishTime;
+
+    // message of error which caused job to fail
+    private volatile String error;
+
+    ImportJob(String id, String fileName) {
+        this.id = id;
+        this.fileName = fileName;
+    }
+
+    void start() {
+        startTime = System.currentTimeMillis();
+        status = Status.RUNNING;
+    }
+
+    void complete() {
+        finishTime = System.currentTimeMillis();
+        status = Status.COMPLETED;
+    }
+
+    void fail(String error) {
+        this.error = error;
+        finishTime = System.currentTimeMillis();
+        status = Status.FAILED;
+    }
+
+    ImportProgress getProgress() {
+        return progress;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    public long getRowsParsed() {
+        return progress.getRowsParsed();
+    }
+
+    public long getRowsPersisted() {
+        return progress.getRowsPersisted();
+    }
+
+    public long getRowsSkipped() {
+        return progress.getRowsSkipped();
+    }
+
+    /**
+     * @return milliseconds since job was started until it was finished or until now, 0 if job is not started
+     */
+    public long getElapsedMillis() {
+        if (startTime == 0) {
+            return 0;
+        }
+        return (finishTime != 0 ? finishTime : System.currentTimeMillis()) - startTime;
+    }
+
+    /**
+     * @return number of rows persisted per second since job was started
+     */
+    public long getRowsPerSecond() {
+        long elapsedMillis = getElapsedMillis();
+        return elapsedMillis == 0 ? 0 : getRowsPersisted() * 1000 / elapsedMillis;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
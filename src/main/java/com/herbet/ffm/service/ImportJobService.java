@@ -0,0 +1,344 @@
+package com.herbet.ffm.service;
+
+import com.herbet.ffm.exception.ApplicationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+/**
+ * Service running uploads of customers files in background. Uploaded file is spooled to disk and upload is run by
+ * bounded pool of threads, so request which sent the file does not wait for the upload.
+ * Many files, directly or in ZIP archives, can be sent at once as batch. Batch is queued like single upload, then its
+ * files are uploaded concurrently by bounded pool of batch threads with bounded queue, files which do not fit into the
+ * queue are uploaded by thread running the batch. Entries of archives are streamed from archive.
+ */
+@Service
+public class ImportJobService {
+
+    @Autowired
+    private UploadCustomersService uploadCustomersService;
+
+    @Value("${import.jobs.threads}")
+    private Integer jobThreads;
+
+    @Value("${import.jobs.queue.size}")
+    private Integer jobQueueSize;
+
+    @Value("${import.jobs.history.size}")
+    private Integer jobHistorySize;
+
+    @Value("${import.batch.threads}")
+    private Integer batchThreads;
+
+    @Value("${import.batch.queue.size}")
+    private Integer batchQueueSize;
+
+    // number of lines committed in one transaction, 0 if file is committed in one transaction
+    @Value("${import.commit.chunk.size}")
+    private Integer commitChunkSize;
+
+    Logger logger = Logger.getLogger(ImportJobService.class.getName());
+
+    private ThreadPoolExecutor executor;
+
+    // pool uploading files of batches, when its queue is full the job thread running batch uploads file itself
+    private ThreadPoolExecutor batchExecutor;
+
+    // jobs and batches in order of submission, the oldest finished ones are forgotten
+    private Map<String, ImportJob> jobs;
+
+    private Map<String, ImportBatch> batches;
+
+    @PostConstruct
+    public void createExecutor() {
+        executor = new ThreadPoolExecutor(jobThreads, jobThreads, 0, TimeUnit.MILLISECONDS,
+                                          new ArrayBlockingQueue<>(jobQueueSize));
+        batchExecutor = new ThreadPoolExecutor(batchThreads, batchThreads, 0, TimeUnit.MILLISECONDS,
+                                               new ArrayBlockingQueue<>(batchQueueSize),
+                                               new ThreadPoolExecutor.CallerRunsPolicy());
+        jobs = history(ImportJob::isFinished);
+        batches = history(ImportBatch::isFinished);
+    }
+
+    @PreDestroy
+    public void shutdownExecutor() {
+        executor.shutdownNow();
+        batchExecutor.shutdownNow();
+    }
+
+    /**
+     * Stores uploaded file on disk and queues its upload. Name of file is checked before file is stored.
+     *
+     * @param file file containing customer data sent from upload form
+     * @return queued job
+     * @throws IOException
+     * @throws ApplicationException if file can not be uploaded or too many uploads are waiting
+     */
+    public ImportJob submit(MultipartFile file) throws IOException, ApplicationException {
+        if (file.isEmpty()) {
+            throw new ApplicationException("The uploaded file is empty or no file was chosen.");
+        }
+
+        String fileName = file.getOriginalFilename();
+        uploadCustomersService.checkFileName(fileName);
+
+        // multipart file is removed when request is finished, so it has to be copied before upload is started
+        File spooledFile = File.createTempFile("customers", ".upload");
+        file.transferTo(spooledFile);
+
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), fileName);
+        jobs.put(job.getId(), job);
+
+        try {
+            executor.execute(() -> run(job, spooledFile));
+        } catch (RejectedExecutionException ree) {
+            jobs.remove(job.getId());
+            delete(spooledFile);
+            throw new ApplicationException("Too many uploads are in progress, please try again later.", ree);
+        }
+
+        return job;
+    }
+
+    /**
+     * Stores uploaded files on disk and queues their upload as one batch. Every csv or prn file and every entry of
+     * ZIP archive gets its own job, entries are named by their path in archive. Names of files are checked before
+     * files are stored, names of entries are checked when they are uploaded.
+     *
+     * @param files files containing customer data or ZIP archives of such files
+     * @return queued batch
+     * @throws IOException
+     * @throws ApplicationException if files can not be uploaded or too many uploads are waiting
+     */
+    public ImportBatch submitBatch(List<MultipartFile> files) throws IOException, ApplicationException {
+        List<MultipartFile> chosenFiles = new ArrayList<>();
+        for (MultipartFile file : files) {
+            if (!file.isEmpty()) {
+                if (!isArchive(file.getOriginalFilename())) {
+                    uploadCustomersService.checkFileName(file.getOriginalFilename());
+                }
+                chosenFiles.add(file);
+            }
+        }
+        if (chosenFiles.isEmpty()) {
+            throw new ApplicationException("The uploaded files are empty or no file was chosen.");
+        }
+
+        List<File> spooledFiles = new ArrayList<>();
+        List<ZipFile> archives = new ArrayList<>();
+        List<ImportJob> batchJobs = new ArrayList<>();
+        List<Runnable> uploads = new ArrayList<>();
+
+        try {
+            for (MultipartFile file : chosenFiles) {
+                File spooledFile = File.createTempFile("customers", ".upload");
+                spooledFiles.add(spooledFile);
+                file.transferTo(spooledFile);
+
+                if (isArchive(file.getOriginalFilename())) {
+                    ZipFile archive = openArchive(spooledFile, file.getOriginalFilename());
+                    archives.add(archive);
+
+                    Enumeration<? extends ZipEntry> entries = archive.entries();
+                    while (entries.hasMoreElements()) {
+                        ZipEntry entry = entries.nextElement();
+                        if (!entry.isDirectory()) {
+                            ImportJob job = new ImportJob(UUID.randomUUID().toString(), entry.getName());
+                            batchJobs.add(job);
+                            uploads.add(() -> run(job, () -> upload(archive, entry, job)));
+                        }
+                    }
+                } else {
+                    ImportJob job = new ImportJob(UUID.randomUUID().toString(), file.getOriginalFilename());
+                    batchJobs.add(job);
+                    uploads.add(() -> run(job, () -> upload(spooledFile, job)));
+                }
+            }
+        } catch (IOException | ApplicationException e) {
+            close(archives, spooledFiles);
+            throw e;
+        }
+
+        ImportBatch batch = new ImportBatch(UUID.randomUUID().toString(), batchJobs);
+        batches.put(batch.getId(), batch);
+
+        try {
+            executor.execute(() -> runBatch(uploads, archives, spooledFiles));
+        } catch (RejectedExecutionException ree) {
+            batches.remove(batch.getId());
+            close(archives, spooledFiles);
+            throw new ApplicationException("Too many uploads are in progress, please try again later.", ree);
+        }
+
+        return batch;
+    }
+
+    /**
+     * @param id id of job
+     * @return job with given id or null if there is no such job
+     */
+    public ImportJob findJob(String id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * @param id id of batch
+     * @return batch with given id or null if there is no such batch
+     */
+    public ImportBatch findBatch(String id) {
+        return batches.get(id);
+    }
+
+    private void run(ImportJob job, File spooledFile) {
+        try {
+            run(job, () -> upload(spooledFile, job));
+        } finally {
+            delete(spooledFile);
+        }
+    }
+
+    /**
+     * Runs upload of job, status of job is updated when upload is started and finished.
+     */
+    private void run(ImportJob job, Upload upload) {
+        job.start();
+        try {
+            upload.run();
+            job.complete();
+        } catch (ApplicationException ae) {
+            job.fail(ae.getMessage());
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Upload of file " + job.getFileName() + " failed", e);
+            job.fail(e.toString());
+        }
+    }
+
+    /**
+     * Runs uploads of files of batch in batch pool and waits until all of them are finished, then archives and stored
+     * files of batch are removed. Upload which does not fit into queue of batch pool is run by current thread, so
+     * files of large batch are not queued before earlier ones are started.
+     */
+    private void runBatch(List<Runnable> uploads, List<ZipFile> archives, List<File> spooledFiles) {
+        List<Future<?>> futures = new ArrayList<>(uploads.size());
+        try {
+            for (Runnable upload : uploads) {
+                futures.add(batchExecutor.submit(upload));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ie) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RejectedExecutionException e) {
+            logger.log(Level.SEVERE, "Upload of batch failed", e);
+        } finally {
+            close(archives, spooledFiles);
+        }
+    }
+
+    private void upload(File spooledFile, ImportJob job) throws IOException, ApplicationException {
+        if (commitChunkSize > 0) {
+            uploadCustomersService.uploadCustomersFromFileInChunks(spooledFile.toPath(), job.getFileName(),
+                                                                   job.getProgress(), commitChunkSize);
+        } else {
+            uploadCustomersService.uploadCustomersFromFile(spooledFile.toPath(), job.getFileName(), job.getProgress());
+        }
+    }
+
+    private void upload(ZipFile archive, ZipEntry entry, ImportJob job) throws IOException, ApplicationException {
+        if (entry.getSize() == 0) {
+            throw new ApplicationException("The uploaded file is empty or no file was chosen.");
+        }
+
+        // entry is decompressed while it is read, nothing is extracted to disk
+        uploadCustomersService.uploadCustomersFromStream(() -> archive.getInputStream(entry), job.getFileName(),
+                                                         job.getProgress());
+    }
+
+    private static ZipFile openArchive(File file, String fileName) throws IOException, ApplicationException {
+        try {
+            return new ZipFile(file);
+        } catch (ZipException ze) {
+            throw new ApplicationException("Uploaded file '" + fileName + "' is not correct ZIP archive.", ze);
+        }
+    }
+
+    private static boolean isArchive(String fileName) {
+        return fileName.toLowerCase().endsWith(".zip");
+    }
+
+    private void close(List<ZipFile> archives, List<File> spooledFiles) {
+        for (ZipFile archive : archives) {
+            try {
+                archive.close();
+            } catch (IOException ioe) {
+                logger.log(Level.WARNING, "Archive " + archive.getName() + " could not be closed", ioe);
+            }
+        }
+        spooledFiles.forEach(ImportJobService::delete);
+    }
+
+    private <T> Map<String, T> history(Predicate<T> finished) {
+        return Collections.synchronizedMap(new History<>(jobHistorySize, finished));
+    }
+
+    private static void delete(File file) {
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    private interface Upload {
+        void run() throws IOException, ApplicationException;
+    }
+
+    /**
+     * Entries in order of insertion, the eldest entry is removed after another one is added if there are more than
+     * maximal number of entries and the eldest one is finished.
+     */
+    private static final class History<T> extends LinkedHashMap<String, T> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        private final Predicate<T> finished;
+
+        History(int maxSize, Predicate<T> finished) {
+            this.maxSize = maxSize;
+            this.finished = finished;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, T> eldest) {
+            return size() > maxSize && finished.test(eldest.getValue());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.herbet.ffm.service;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.herbet.ffm.exception.ApplicationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Metrics of stages of uploads, registered in metric registry exposed by actuator metrics endpoint. Stages done for
+ * every line are measured by upload and reported once per saved batch, so instrumentation does not add work per line
+ * besides reading the clock.
+ */
+@Component
+public class ImportMetrics {
+
+    private static final String PREFIX = "import.";
+
+    @Autowired
+    private MetricRegistry registry;
+
+    // lines read from files: parsed, rejected and skipped without parsing (files skipped as whole are not counted)
+    private Counter linesRead;
+
+    // average parse time of line in every reported group of lines
+    private Histogram parseNanosPerLine;
+
+    // lookups of address with the same location in DB
+    private Timer addressLookup;
+
+    // saves of batches of customers
+    private Timer batchSave;
+
+    // rate of persisted rows
+    private Meter rowsPersisted;
+
+    // rows persisted per second by every finished upload
+    private Histogram uploadRowsPerSecond;
+
+    @PostConstruct
+    public void registerMetrics() {
+        linesRead = registry.counter(PREFIX + "lines.read");
+        parseNanosPerLine = registry.histogram(PREFIX + "parse.nanos.per.line");
+        addressLookup = registry.timer(PREFIX + "address.lookup");
+        batchSave = registry.timer(PREFIX + "batch.save");
+        rowsPersisted = registry.meter(PREFIX + "rows.persisted");
+        uploadRowsPerSecond = registry.histogram(PREFIX + "upload.rows.per.second");
+    }
+
+    /**
+     * @param lines number of parsed lines
+     * @param nanos time spent on parsing them
+     */
+    void linesParsed(int lines, long nanos) {
+        if (lines > 0) {
+            linesRead.inc(lines);
+            parseNanosPerLine.update(nanos / lines);
+        }
+    }
+
+    /**
+     * @param lines number of lines skipped without parsing, as they were already committed or loaded
+     */
+    void linesSkipped(int lines) {
+        if (lines > 0) {
+            linesRead.inc(lines);
+        }
+    }
+
+    /**
+     * Counts rejected line by reason taken from error message (incorrect column or format of whole line).
+     *
+     * @param error error of line
+     */
+    void lineRejected(ApplicationException error) {
+        linesRead.inc();
+        registry.counter(PREFIX + "lines.rejected." + rejectionReason(error.getMessage())).inc();
+    }
+
+    void addressLookedUp(long nanos) {
+        addressLookup.update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void batchSaved(int rows, long nanos) {
+        batchSave.update(nanos, TimeUnit.NANOSECONDS);
+        rowsPersisted.mark(rows);
+    }
+
+    void uploadFinished(long rows, long nanos) {
+        if (nanos > 0) {
+            uploadRowsPerSecond.update(rows * TimeUnit.SECONDS.toNanos(1) / nanos);
+        }
+    }
+
+    private static String rejectionReason(String message) {
+        if (message == null) {
+            return "unknown";
+        }
+        if (message.startsWith("Column Name")) {
+            return "name";
+        }
+        if (message.startsWith("Column Credit Limit")) {
+            return "credit.limit";
+        }
+        if (message.startsWith("Column Birthday")) {
+            return "birthday";
+        }
+        return "format";
+    }
+}
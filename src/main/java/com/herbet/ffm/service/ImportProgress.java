@@ -0,0 +1,43 @@
+package com.herbet.ffm.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of rows processed by single upload. Updated by thread running the upload and read by other threads.
+ */
+public class ImportProgress {
+
+    // rows parsed to customers
+    private final AtomicLong rowsParsed = new AtomicLong();
+
+    // rows which customers were sent to DB (they are visible for others after upload is committed)
+    private final AtomicLong rowsPersisted = new AtomicLong();
+
+    // rows skipped without being saved: all rows of file already uploaded from the same source, rows committed by
+    // previous attempt of the same upload and rows with hash of row already loaded from the same source
+    private final AtomicLong rowsSkipped = new AtomicLong();
+
+    void addParsedRows(long rows) {
+        rowsParsed.addAndGet(rows);
+    }
+
+    void addPersistedRows(long rows) {
+        rowsPersisted.addAndGet(rows);
+    }
+
+    void addSkippedRows(long rows) {
+        rowsSkipped.addAndGet(rows);
+    }
+
+    public long getRowsParsed() {
+        return rowsParsed.get();
+    }
+
+    public long getRowsPersisted() {
+        return rowsPersisted.get();
+    }
+
+    public long getRowsSkipped() {
+        return rowsSkipped.get();
+    }
+}
@@ -0,0 +1,32 @@
+package com.herbet.ffm.service;
+
+import com.herbet.ffm.entity.ImportedFile;
+import com.herbet.ffm.repository.ImportedFileRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service used for persisting ImportedFile objects. Additional layer between DAO and application logic.
+ */
+@Service
+public class ImportedFileCrudService {
+
+    @Autowired
+    private ImportedFileRepository repository;
+
+    public ImportedFile findOne(String fileHash, String fileName) {
+        return repository.findFirstByFileHashAndFileName(fileHash, fileName);
+    }
+
+    public ImportedFile save(ImportedFile importedFile) {
+        return repository.save(importedFile);
+    }
+
+    public long count() {
+        return repository.count();
+    }
+
+    public void deleteAll() {
+        repository.deleteAll();
+    }
+}
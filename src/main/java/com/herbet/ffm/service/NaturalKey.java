@@ -0,0 +1,97 @@
+package com.herbet.ffm.service;
+
+import com.herbet.ffm.entity.Customer;
+import org.apache.commons.lang3.StringUtils;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Fields of customer which identify the same person in different uploads, like last name, first name and birthday.
+ * Keys are compared by value, so they can be used in hash index of customers.
+ */
+public final class NaturalKey {
+
+    enum Field {
+        LAST_NAME("lastName"), FIRST_NAME("firstName"), BIRTHDAY("birthday"), ADDRESS("address");
+
+        // name of field in configuration
+        private final String name;
+
+        Field(String name) {
+            this.name = name;
+        }
+    }
+
+    private final Set<Field> fields;
+
+    private NaturalKey(Set<Field> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * @param fieldNames comma separated names of fields, like "lastName,firstName,birthday"
+     * @return natural key made of given fields
+     * @throws IllegalArgumentException if name of field is unknown or no field is given
+     */
+    static NaturalKey parse(String fieldNames) {
+        Set<Field> fields = EnumSet.noneOf(Field.class);
+        for (String fieldName : StringUtils.split(fieldNames, ',')) {
+            fields.add(field(fieldName.trim()));
+        }
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("Natural key of customer has no fields");
+        }
+        return new NaturalKey(fields);
+    }
+
+    /**
+     * @param field field of customer
+     * @return true if field is part of key
+     */
+    boolean contains(Field field) {
+        return fields.contains(field);
+    }
+
+    /**
+     * @param customer customer with persisted address
+     * @return key of customer
+     */
+    Object of(Customer customer) {
+        return of(customer.getLastName(), customer.getFirstName(), customer.getBirthday(),
+                  customer.getAddress().getId());
+    }
+
+    /**
+     * @return key of customer with given fields, fields not belonging to key are ignored
+     */
+    Object of(String lastName, String firstName, Date birthday, long addressId) {
+        List<Object> key = new ArrayList<>(fields.size());
+        if (fields.contains(Field.LAST_NAME)) {
+            key.add(lastName);
+        }
+        if (fields.contains(Field.FIRST_NAME)) {
+            key.add(firstName);
+        }
+        if (fields.contains(Field.BIRTHDAY)) {
+            // dates are compared by day, whatever time of day they were read with
+            key.add(birthday.toLocalDate());
+        }
+        if (fields.contains(Field.ADDRESS)) {
+            key.add(addressId);
+        }
+        return key;
+    }
+
+    private static Field field(String name) {
+        for (Field field : Field.values()) {
+            if (field.name.equals(name)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown field of natural key of customer: " + name);
+    }
+}
@@ -0,0 +1,98 @@
+package com.herbet.ffm.service;
+
+import com.herbet.ffm.entity.Customer;
+import com.herbet.ffm.exception.ApplicationException;
+
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.LongPredicate;
+
+/**
+ * Fork/join task parsing chunk of lines with customer data. Chunk is split in halves until parts are small enough to
+ * be parsed by single thread. Results are stored by index of line, so they can be persisted in order of lines in file.
+ * Hash of every line is computed once, to skip row already loaded and then stored in created customer.
+ */
+class ParseLinesTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    // number of lines parsed by single thread without further splitting
+    private static final int LINES_PER_TASK = 256;
+
+    private final CustomerLineParser parser;
+
+    private final List<CharSequence> lines;
+
+    private final String fileName;
+
+    // true for hash of row already loaded from the same source
+    private final LongPredicate knownRow;
+
+    private final Customer[] customers;
+
+    private final ApplicationException[] errors;
+
+    private final int from;
+
+    private final int to;
+
+    ParseLinesTask(CustomerLineParser parser, List<CharSequence> lines, String fileName, LongPredicate knownRow) {
+        this(parser, lines, fileName, knownRow, new Customer[lines.size()], new ApplicationException[lines.size()], 0,
+             lines.size());
+    }
+
+    private ParseLinesTask(CustomerLineParser parser, List<CharSequence> lines, String fileName, LongPredicate knownRow,
+                           Customer[] customers, ApplicationException[] errors, int from, int to) {
+        this.parser = parser;
+        this.lines = lines;
+        this.fileName = fileName;
+        this.knownRow = knownRow;
+        this.customers = customers;
+        this.errors = errors;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * @return customers created from lines, by index of line; null for rows already loaded and for lines after the
+     * first incorrect line of part
+     */
+    Customer[] getCustomers() {
+        return customers;
+    }
+
+    /**
+     * @return exceptions thrown for incorrect lines, by index of line; null for correct lines
+     */
+    ApplicationException[] getErrors() {
+        return errors;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= LINES_PER_TASK) {
+            parseLines();
+        } else {
+            int middle = (from + to) >>> 1;
+            invokeAll(new ParseLinesTask(parser, lines, fileName, knownRow, customers, errors, from, middle),
+                      new ParseLinesTask(parser, lines, fileName, knownRow, customers, errors, middle, to));
+        }
+    }
+
+    private void parseLines() {
+        for (int i = from; i < to; i++) {
+            long rowHash = RowHash.of(lines.get(i));
+            if (knownRow.test(rowHash)) {
+                continue;
+            }
+            try {
+                customers[i] = parser.parse(lines.get(i), fileName);
+                customers[i].setRowHash(rowHash);
+            } catch (ApplicationException ae) {
+                // lines after incorrect one are not needed, whole file is rejected anyway
+                errors[i] = ae;
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.herbet.ffm.service;
+
+/**
+ * 64-bit hash of line of uploaded file, used to recognize rows already loaded from the same source without parsing
+ * them again.
+ */
+final class RowHash {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private RowHash() {
+    }
+
+    /**
+     * @param line line with customer data
+     * @return FNV-1a hash of characters of line with final avalanche of bits
+     */
+    static long of(CharSequence line) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < line.length(); i++) {
+            hash = (hash ^ line.charAt(i)) * FNV_PRIME;
+        }
+
+        // finalizer of MurmurHash3, so similar lines do not get similar hashes
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -1,26 +1,57 @@
 package com.herbet.ffm.service;
 
+import com.herbet.ffm.config.CacheConfiguration;
 import com.herbet.ffm.entity.Address;
 import com.herbet.ffm.entity.Customer;
+import com.herbet.ffm.entity.ImportCheckpoint;
+import com.herbet.ffm.entity.ImportedFile;
 import com.herbet.ffm.exception.ApplicationException;
-import org.apache.commons.lang3.ArrayUtils;
+import com.herbet.ffm.parser.BirthdayParser;
+import com.herbet.ffm.parser.ByteLineReader;
+import com.herbet.ffm.parser.CreditLimitParser;
+import com.herbet.ffm.parser.CsvCustomerTokenizer;
+import com.herbet.ffm.parser.CustomerRecord;
+import com.herbet.ffm.parser.Decompression;
+import com.herbet.ffm.parser.LineReader;
+import com.herbet.ffm.parser.PrnLayout;
+import com.herbet.ffm.parser.PrnLayoutDetector;
+import com.herbet.ffm.parser.TextLineReader;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.sql.Date;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Logger;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+/**
+ * Service loading customers from uploaded csv and prn files. Rows already loaded from the same source are recognized
+ * by hashes of lines and skipped without parsing. Changed row is a new row for that check, so without natural key
+ * configured in import.upsert.key it is inserted next to its previous version, which stays in DB. Only with the key
+ * stored customer is updated by changed row.
+ */
 @Service
 public class UploadCustomersService {
 
@@ -30,64 +61,102 @@ public class UploadCustomersService {
     @Autowired
     private CustomerCrudService customerCrudService;
 
+    @Autowired
+    private ImportCheckpointCrudService importCheckpointCrudService;
+
+    @Autowired
+    private ImportedFileCrudService importedFileCrudService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ImportMetrics importMetrics;
+
+    @Autowired
+    private CacheManager cacheManager;
+
     @Value("${input.file.encoding}")
     private String inputfileEncoding;
 
-    @Value("${csv.format.date}")
-    private String csvDateFormat;
+    @Value("${import.batch.size}")
+    private Integer batchSize;
 
-    @Value("${prn.format.date}")
-    private String prnDateFormat;
+    @Value("${import.parse.parallelism}")
+    private Integer parseParallelism;
 
-    @Value("${prn.format.name.start}")
-    private Integer prnNameStart;
+    @Value("${import.parse.chunk.size}")
+    private Integer parseChunkSize;
 
-    @Value("${prn.format.name.end}")
-    private Integer prnNameEnd;
+    // fields of natural key of customer, like "lastName,firstName,birthday", empty if customers are only inserted
+    @Value("${import.upsert.key}")
+    private String upsertKey;
 
-    @Value("${prn.format.address.start}")
-    private Integer prnAddressStart;
+    // number of times location inserted by concurrent upload is looked up before upload fails
+    @Value("${import.address.attempts}")
+    private Integer addressAttempts;
 
-    @Value("${prn.format.address.end}")
-    private Integer prnAddressEnd;
+    // maximal number of errors listed in report of file validation
+    @Value("${import.validation.max.errors}")
+    private Integer validationMaxErrors;
+
+    // layouts of prn files derived from their headers, configured layout is used for headers without labels
+    @Autowired
+    private PrnLayoutDetector prnLayoutDetector;
 
-    @Value("${prn.format.postcode.start}")
-    private Integer prnPostcodeStart;
+    @Autowired
+    @Qualifier("csvBirthdayParser")
+    private BirthdayParser csvBirthdayParser;
 
-    @Value("${prn.format.postcode.end}")
-    private Integer prnPostcodeEnd;
+    @Autowired
+    @Qualifier("prnBirthdayParser")
+    private BirthdayParser prnBirthdayParser;
 
-    @Value("${prn.format.phone.start}")
-    private Integer prnPhoneStart;
+    // number of locks guarding creation of addresses shared by concurrent uploads
+    private static final int ADDRESS_LOCK_STRIPES = 64;
 
-    @Value("${prn.format.phone.end}")
-    private Integer prnPhoneEnd;
+    Logger logger = Logger.getLogger(UploadCustomersService.class.getName());
 
-    @Value("${prn.format.credit.limit.start}")
-    private Integer prnCreditLimitStart;
+    // locks of locations, address with given location is created by one upload at a time
+    private final Object[] addressLocks = new Object[ADDRESS_LOCK_STRIPES];
 
-    @Value("${prn.format.credit.limit.end}")
-    private Integer prnCreditLimitEnd;
+    {
+        for (int i = 0; i < addressLocks.length; i++) {
+            addressLocks[i] = new Object();
+        }
+    }
 
-    @Value("${prn.format.birthday.start}")
-    private Integer prnBirthdayStart;
+    // pool used for parsing lines in parallel, null if lines are parsed one by one
+    private ForkJoinPool parsePool;
 
-    @Value("${prn.format.birthday.end}")
-    private Integer prnBirthdayEnd;
+    @PostConstruct
+    public void createParsePool() {
+        if (parseParallelism > 1) {
+            parsePool = new ForkJoinPool(parseParallelism);
+        }
+    }
 
-    Logger logger = Logger.getLogger(UploadCustomersService.class.getName());
+    @PreDestroy
+    public void shutdownParsePool() {
+        if (parsePool != null) {
+            parsePool.shutdown();
+        }
+    }
 
     /**
      * Loads customers data from data file dent from upload form. All necessary checks are performed for loaded
      * customers.
      * File is completetly loaded or not loaded at all. Every exception thrown during execution causes transation
-     * to be rolled back.
+     * to be rolled back. Gzip or deflate compressed file is inflated while it is read.
+     * File with the same content as file already uploaded from the same source is skipped, rows already loaded from
+     * the same source are skipped without parsing.
      *
      * @param file file containing customer data sent from upload form
      * @throws IOException
      * @throws ApplicationException
      */
     @Transactional(rollbackFor = Exception.class)
+    @CacheEvict(cacheNames = CacheConfiguration.CUSTOMERS_CACHE, allEntries = true)
     public void uploadCustomersFromFile(MultipartFile file) throws IOException, ApplicationException {
 
         if (file.isEmpty()) {
@@ -95,7 +164,278 @@ public class UploadCustomersService {
         }
 
         String fileName = file.getOriginalFilename();
-        String fileExtension = fileName.substring(fileName.lastIndexOf('.') + 1);
+        String fileExtension = checkFileName(fileName);
+
+        String fileHash = fileHash(file);
+        ImportProgress progress = new ImportProgress();
+        if (skipUploadedFile(fileHash, fileName, progress)) {
+            return;
+        }
+
+        ImportContext context = createContext(fileName, progress);
+
+        if (fileExtension.equals("csv")) {
+            // customer data is streamed line by line, so memory usage does not depend on the size of the file
+            try (LineReader reader = openStream(file.getInputStream(), fileExtension)) {
+                uploadCustomersFromCsv(reader, context);
+            }
+        }
+
+        if (fileExtension.equals("prn")) {
+            uploadCustomersFromPrn(file, context);
+        }
+
+        recordUploadedFile(fileHash, context);
+    }
+
+    /**
+     * Checks whole file sent from upload form without loading it, DB is not accessed at all. Lines are read in chunks
+     * and every chunk is checked in parallel, checking goes on after incorrect lines, so all of them are reported
+     * with their numbers at once. Gzip or deflate compressed file is inflated while it is read.
+     *
+     * @param file file containing customer data sent from upload form
+     * @return report listing incorrect lines
+     * @throws IOException
+     * @throws ApplicationException if file is empty or its extension is not supported
+     */
+    public ValidationReport validateCustomersFile(MultipartFile file) throws IOException, ApplicationException {
+
+        if (file.isEmpty()) {
+            throw new ApplicationException("The uploaded file is empty or no file was chosen.");
+        }
+
+        String fileName = file.getOriginalFilename();
+        String fileExtension = checkFileName(fileName);
+        ValidationReport report = new ValidationReport(fileName, validationMaxErrors);
+
+        try (LineReader reader = openStream(file.getInputStream(), fileExtension)) {
+            // first line contains header, which gives layout of prn file
+            CustomerLineValidator validator = lineValidator(fileExtension, reader.readLine());
+
+            List<CharSequence> chunk = new ArrayList<>(parseChunkSize);
+            CharSequence line;
+            while ((line = reader.readLine()) != null) {
+                chunk.add(line);
+                if (chunk.size() >= parseChunkSize) {
+                    validateLines(chunk, validator, report);
+                    chunk.clear();
+                }
+            }
+            validateLines(chunk, validator, report);
+        }
+
+        return report;
+    }
+
+    /**
+     * Checks chunk of lines in parallel and adds errors to report in order of lines.
+     *
+     * @param lines chunk of lines with customer data, following lines already checked
+     * @param validator validator of lines in format of file
+     * @param report report of checked file
+     */
+    private void validateLines(List<CharSequence> lines, CustomerLineValidator validator, ValidationReport report) {
+        // checking holds no transaction, so it runs in parallel even if lines of uploads are parsed one by one
+        ForkJoinPool pool = parsePool != null ? parsePool : ForkJoinPool.commonPool();
+        ValidateLinesTask task = new ValidateLinesTask(validator, lines);
+        pool.invoke(task);
+
+        // first line of chunk follows header and lines of previous chunks
+        long firstLineNumber = report.getLines() + 2;
+        for (int i = 0; i < lines.size(); i++) {
+            if (task.getErrors()[i] != null) {
+                report.addError(firstLineNumber + i, task.getErrors()[i]);
+            }
+        }
+        report.addLines(lines.size());
+    }
+
+    /**
+     * Loads customers data from uploaded file already stored on disk. Checks and transaction are the same as for file
+     * sent from upload form, progress of upload is reported as rows are processed.
+     * Files and rows already uploaded from the same source are skipped.
+     *
+     * @param path path of stored file
+     * @param fileName original name of uploaded file
+     * @param progress counters updated during upload
+     * @throws IOException
+     * @throws ApplicationException
+     */
+    @Transactional(rollbackFor = Exception.class)
+    @CacheEvict(cacheNames = CacheConfiguration.CUSTOMERS_CACHE, allEntries = true)
+    public void uploadCustomersFromFile(Path path, String fileName, ImportProgress progress)
+            throws IOException, ApplicationException {
+
+        if (Files.size(path) == 0) {
+            throw new ApplicationException("The uploaded file is empty or no file was chosen.");
+        }
+
+        String fileExtension = checkFileName(fileName);
+
+        String fileHash = FileHash.sha256(path);
+        if (skipUploadedFile(fileHash, fileName, progress)) {
+            return;
+        }
+
+        ImportContext context = createContext(fileName, progress);
+
+        try (LineReader reader = openStoredFile(path, fileExtension)) {
+            uploadCustomers(reader, context, fileExtension);
+        }
+
+        recordUploadedFile(fileHash, context);
+    }
+
+    /**
+     * Loads customers data from streams of file, like entry of uploaded archive. Checks, transaction and addresses are
+     * the same as for uploaded file stored on disk, file is read line by line while it is streamed. File is read
+     * twice, first to find out if it was already uploaded.
+     *
+     * @param file source of streams of file content
+     * @param fileName name of file, used as source of customers
+     * @param progress counters updated during upload
+     * @throws IOException
+     * @throws ApplicationException
+     */
+    @Transactional(rollbackFor = Exception.class)
+    @CacheEvict(cacheNames = CacheConfiguration.CUSTOMERS_CACHE, allEntries = true)
+    public void uploadCustomersFromStream(InputStreamSource file, String fileName, ImportProgress progress)
+            throws IOException, ApplicationException {
+
+        String fileExtension = checkFileName(fileName);
+
+        String fileHash = fileHash(file);
+        if (skipUploadedFile(fileHash, fileName, progress)) {
+            return;
+        }
+
+        ImportContext context = createContext(fileName, progress);
+
+        try (LineReader reader = openStream(file.getInputStream(), fileExtension)) {
+            uploadCustomers(reader, context, fileExtension);
+        }
+
+        recordUploadedFile(fileHash, context);
+    }
+
+    /**
+     * Loads customers data from uploaded file already stored on disk and commits every chunk of lines in separate
+     * transaction, together with checkpoint holding number of committed lines. If previous upload of the same file
+     * (file with the same content) failed, then lines committed by it are skipped. Checkpoint is removed when the
+     * last chunk is committed.
+     * Persistence context and transaction are bounded by chunk size, but file which fails is loaded only partially.
+     * Files and rows already uploaded from the same source are skipped. Cached customers are evicted by every
+     * committed chunk, so they are not stale when a later chunk fails.
+     *
+     * @param path path of stored file
+     * @param fileName original name of uploaded file
+     * @param progress counters updated during upload
+     * @param commitChunkSize number of lines committed in one transaction
+     * @throws IOException
+     * @throws ApplicationException
+     */
+    public void uploadCustomersFromFileInChunks(Path path, String fileName, ImportProgress progress,
+                                                int commitChunkSize) throws IOException, ApplicationException {
+
+        if (Files.size(path) == 0) {
+            throw new ApplicationException("The uploaded file is empty or no file was chosen.");
+        }
+
+        String fileExtension = checkFileName(fileName);
+
+        String fileHash = FileHash.sha256(path);
+        if (skipUploadedFile(fileHash, fileName, progress)) {
+            return;
+        }
+
+        ImportCheckpoint checkpoint = importCheckpointCrudService.findOne(fileHash, fileName);
+        if (checkpoint == null) {
+            checkpoint = new ImportCheckpoint(fileHash, fileName);
+        } else {
+            logger.info("Resuming upload of " + fileName + " after line " + checkpoint.getLinesCommitted());
+        }
+
+        ImportContext context = createContext(fileName, progress);
+
+        try (LineReader reader = openStoredFile(path, fileExtension)) {
+            // first line contains header, which gives layout of prn file
+            CustomerLineParser parser = lineParser(fileExtension, reader.readLine());
+
+            // skip lines committed by previous upload
+            for (long i = 0; i < checkpoint.getLinesCommitted() && reader.readLine() != null; i++) {
+                context.addSkippedLines(1);
+            }
+
+            List<CharSequence> chunk = new ArrayList<>(commitChunkSize);
+            CharSequence line;
+            while ((line = reader.readLine()) != null) {
+                chunk.add(line);
+                if (chunk.size() >= commitChunkSize) {
+                    commitChunk(chunk, context, parser, checkpoint, false);
+                    chunk.clear();
+                }
+            }
+            commitChunk(chunk, context, parser, checkpoint, true);
+        }
+
+        importMetrics.uploadFinished(progress.getRowsPersisted(), System.nanoTime() - context.getStartNanos());
+    }
+
+    /**
+     * Creates state of upload with hashes of rows already loaded from the same source. If upsert of customers is
+     * configured then natural key of customers is set, stored customers are looked up by keys of every batch.
+     */
+    private ImportContext createContext(String fileName, ImportProgress progress) {
+        ImportContext context = new ImportContext(fileName, batchSize, progress);
+        context.setKnownRowHashes(customerCrudService.findRowHashes(fileName));
+        if (StringUtils.isNotBlank(upsertKey)) {
+            context.setUpsert(NaturalKey.parse(upsertKey));
+        }
+        return context;
+    }
+
+    private static String fileHash(InputStreamSource file) throws IOException {
+        try (InputStream input = file.getInputStream()) {
+            return FileHash.sha256(input);
+        }
+    }
+
+    /**
+     * Checks if file with the same content was already uploaded from the same source, then all its rows are counted
+     * as skipped.
+     *
+     * @param fileHash hash of file content
+     * @param fileName name of file, used as source of customers
+     * @param progress counters of upload
+     * @return true if file should be skipped
+     */
+    private boolean skipUploadedFile(String fileHash, String fileName, ImportProgress progress) {
+        ImportedFile importedFile = importedFileCrudService.findOne(fileHash, fileName);
+        if (importedFile == null) {
+            return false;
+        }
+
+        logger.info("File " + fileName + " was already uploaded, upload skipped");
+        progress.addSkippedRows(importedFile.getRows());
+        return true;
+    }
+
+    private void recordUploadedFile(String fileHash, ImportContext context) {
+        ImportProgress progress = context.getProgress();
+        importedFileCrudService.save(new ImportedFile(fileHash, context.getSource(),
+                                                      progress.getRowsParsed() + progress.getRowsSkipped()));
+    }
+
+    /**
+     * Checks if file with given name can be uploaded. Compressed files are named like "customers.csv.gz".
+     *
+     * @param fileName name of uploaded file
+     * @return extension of file in lower case, without extension of compression
+     * @throws ApplicationException if extension is other than csv or prn
+     */
+    public String checkFileName(String fileName) throws ApplicationException {
+        String uncompressedName = Decompression.stripExtension(fileName);
+        String fileExtension = uncompressedName.substring(uncompressedName.lastIndexOf('.') + 1);
 
         // throw exception if extension is other that csv or prn
         if (!(StringUtils.equals(fileExtension.toLowerCase(), "csv") || StringUtils.equals(fileExtension.toLowerCase(),
@@ -103,238 +443,517 @@ public class UploadCustomersService {
             throw new ApplicationException("Uploaded file extention: '." + fileExtension + "' is not supported.");
         }
 
-        // extract all lines of file containing customer data (header is ignored)
-        List<String> fileLines = extractLines(file);
+        return fileExtension.toLowerCase();
+    }
 
-        if (StringUtils.equals(fileExtension.toLowerCase(), "csv")) {
-            uploadCustomersFromCsv(fileLines, fileName);
-        }
+    /**
+     * Opens reader of lines of uploaded file stored on disk. If encoding of input files is single byte charset then
+     * prn file is memory-mapped, otherwise file is decoded line by line. Compressed file is never mapped, it is
+     * streamed and inflated.
+     *
+     * @param path path of stored file
+     * @param fileExtension extension of uploaded file in lower case
+     * @return reader of lines of file
+     * @throws IOException
+     */
+    private LineReader openStoredFile(Path path, String fileExtension) throws IOException {
+        Charset charset = Charset.forName(inputfileEncoding);
 
-        if (StringUtils.equals(fileExtension.toLowerCase(), "prn")) {
-            uploadCustomersFromPrn(fileLines, fileName);
+        if (fileExtension.equals("prn") && ByteLineReader.supports(charset) && !Decompression.isCompressed(path)) {
+            return ByteLineReader.open(path, charset);
         }
+
+        return openStream(Files.newInputStream(path), fileExtension);
     }
 
     /**
-     * Extracts all lines except header from file containing customer
+     * Opens reader of lines of streamed file. If encoding of input files is single byte charset then lines of prn file
+     * are located in bytes, otherwise file is decoded line by line. Compressed stream is inflated while it is read.
      *
-     * @param file file containing customer data
-     * @return list containing lines with customer data
+     * @param input stream of file content
+     * @param fileExtension extension of file in lower case
+     * @return reader of lines of file, closing it closes the stream
      * @throws IOException
      */
-    private List<String> extractLines(MultipartFile file) throws IOException {
-        LinkedList<String> fileLines = new LinkedList<>();
+    private LineReader openStream(InputStream input, String fileExtension) throws IOException {
+        Charset charset = Charset.forName(inputfileEncoding);
+        InputStream content = Decompression.open(input);
 
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(file.getInputStream(), inputfileEncoding))) {
-            br.lines().forEach(fileLines::add);
+        if (fileExtension.equals("prn") && ByteLineReader.supports(charset)) {
+            return ByteLineReader.open(content, charset);
         }
 
-        // remove first line containing header
-        fileLines.removeFirst();
+        return new TextLineReader(content, charset);
+    }
 
-        return fileLines;
+    /**
+     * @param fileExtension extension of uploaded file in lower case
+     * @return parser of lines in format of file with given extension, prn lines in configured layout
+     */
+    CustomerLineParser lineParser(String fileExtension) {
+        return lineParser(fileExtension, null);
     }
 
     /**
-     * Creates customers from list containing lines with customer data in csv format and persist them.
-     * @param csvFileLines list containing lines with customer data in csv format
-     * @param fileName name of related csv file
+     * Creates parser for one file. Layout of prn file is found once, by its header, and used for all its lines.
+     *
+     * @param fileExtension extension of uploaded file in lower case
+     * @param header header line of file, null if file has no lines
+     * @return parser of lines in format of file with given extension
+     */
+    CustomerLineParser lineParser(String fileExtension, CharSequence header) {
+        if (fileExtension.equals("csv")) {
+            return this::createCustomerFromCsvLine;
+        }
+        PrnLayout layout = prnLayoutDetector.layoutOf(header);
+        return (line, fileName) -> createCustomerFromPrnLine(line, fileName, layout);
+    }
+
+    /**
+     * Creates validator for one file. Layout of prn file is found once, by its header, and used for all its lines.
+     *
+     * @param fileExtension extension of uploaded file in lower case
+     * @param header header line of file, null if file has no lines
+     * @return validator of lines in format of file with given extension
+     */
+    CustomerLineValidator lineValidator(String fileExtension, CharSequence header) {
+        if (fileExtension.equals("csv")) {
+            return this::validateCsvLine;
+        }
+        PrnLayout layout = prnLayoutDetector.layoutOf(header);
+        return line -> validatePrnLine(line, layout);
+    }
+
+    /**
+     * Creates customers from prn file and persist them. If encoding of input files is single byte charset then file
+     * is spooled to disk and memory-mapped (or streamed and inflated if it is compressed), lines are located in bytes
+     * of file and only fields of customer are decoded. Otherwise file is streamed and decoded line by line.
+     *
+     * @param file file containing customer data in prn format
+     * @param context state of current upload
+     * @throws IOException
      * @throws ApplicationException
      */
-    private void uploadCustomersFromCsv(List<String> csvFileLines, String fileName) throws ApplicationException {
-        for (String line : csvFileLines) {
-            createCustomerFromCsvLine(line, fileName);
+    private void uploadCustomersFromPrn(MultipartFile file, ImportContext context)
+            throws IOException, ApplicationException {
+        Charset charset = Charset.forName(inputfileEncoding);
+
+        if (!ByteLineReader.supports(charset)) {
+            try (LineReader reader = openStream(file.getInputStream(), "prn")) {
+                uploadCustomersFromPrn(reader, context);
+            }
+            return;
+        }
+
+        // uploaded file is usually already stored on disk, then it is only moved
+        File spooledFile = File.createTempFile("customers", ".prn");
+        try {
+            file.transferTo(spooledFile);
+            try (LineReader reader = openStoredFile(spooledFile.toPath(), "prn")) {
+                uploadCustomersFromPrn(reader, context);
+            }
+        } finally {
+            if (!spooledFile.delete()) {
+                spooledFile.deleteOnExit();
+            }
         }
     }
 
     /**
-     * Creates customers from list containing lines with customer data in prn format and persist them.
-     * @param prnFileLines list containing lines with customer data in prn format
-     * @param fileName name of related csv file
+     * Creates customers from lines with customer data in csv format and persist them. Lines are read one by one.
+     * @param csvFileReader reader providing header and lines with customer data in csv format
+     * @param context state of current upload
+     * @throws IOException
+     * @throws ApplicationException
+     */
+    private void uploadCustomersFromCsv(LineReader csvFileReader, ImportContext context)
+            throws IOException, ApplicationException {
+        uploadCustomers(csvFileReader, context, "csv");
+    }
+
+    /**
+     * Creates customers from lines with customer data in prn format and persist them. Lines are read one by one.
+     * @param prnFileReader reader providing header and lines with customer data in prn format
+     * @param context state of current upload
+     * @throws IOException
      * @throws ApplicationException
      */
-    private void uploadCustomersFromPrn(List<String> prnFileLines, String fileName) throws ApplicationException {
-        for (String line : prnFileLines) {
-            createCustomerFromPrnLine(line, fileName);
+    private void uploadCustomersFromPrn(LineReader prnFileReader, ImportContext context)
+            throws IOException, ApplicationException {
+        uploadCustomers(prnFileReader, context, "prn");
+    }
+
+    /**
+     * Creates customers from lines with customer data and persist them in order of lines in file. Parser of lines is
+     * created from header of file, prn lines are parsed with layout derived from the header. If parallel parsing is
+     * enabled then lines are read in chunks and every chunk is parsed in parallel before its customers are persisted,
+     * otherwise lines are parsed one by one. In both cases exception is thrown for the first incorrect line in file.
+     *
+     * @param reader reader providing header and lines with customer data
+     * @param context state of current upload
+     * @param fileExtension extension of uploaded file in lower case
+     * @throws IOException
+     * @throws ApplicationException
+     */
+    private void uploadCustomers(LineReader reader, ImportContext context, String fileExtension)
+            throws IOException, ApplicationException {
+        // first line contains header, which gives layout of prn file
+        CustomerLineParser parser = lineParser(fileExtension, reader.readLine());
+
+        CharSequence line;
+
+        if (parsePool == null) {
+            while ((line = reader.readLine()) != null) {
+                uploadLine(line, context, parser);
+            }
+        } else {
+            List<CharSequence> chunk = new ArrayList<>(parseChunkSize);
+            while ((line = reader.readLine()) != null) {
+                chunk.add(line);
+                if (chunk.size() >= parseChunkSize) {
+                    uploadCustomersInParallel(chunk, context, parser);
+                    chunk.clear();
+                }
+            }
+            uploadCustomersInParallel(chunk, context, parser);
+        }
+
+        savePendingCustomers(context);
+        importMetrics.uploadFinished(context.getProgress().getRowsPersisted(),
+                                     System.nanoTime() - context.getStartNanos());
+    }
+
+    /**
+     * Parses single line with customer data and persist created customer. Row already loaded from the same source is
+     * skipped.
+     *
+     * @param line line with customer data
+     * @param context state of current upload
+     * @param parser parser of lines in format of uploaded file
+     * @throws ApplicationException thrown if line is incorrect
+     */
+    private void uploadLine(CharSequence line, ImportContext context, CustomerLineParser parser)
+            throws ApplicationException {
+        long rowHash = RowHash.of(line);
+        if (context.isKnownRow(rowHash)) {
+            context.addSkippedLines(1);
+            return;
         }
+
+        long start = System.nanoTime();
+        Customer customer;
+        try {
+            customer = parser.parse(line, context.getSource());
+        } catch (ApplicationException ae) {
+            importMetrics.lineRejected(ae);
+            throw ae;
+        }
+        customer.setRowHash(rowHash);
+        context.addParsedLines(1, System.nanoTime() - start);
+
+        persistCustomer(customer, context);
     }
 
     /**
-     * Creates customer from line with customer data in prn format and persist them.
+     * Creates customers from chunk of lines and commits them in new transaction together with updated checkpoint.
+     * Cached customers are evicted when the chunk is committed. Transaction is rolled back if any line is incorrect.
+     *
+     * @param lines chunk of lines with customer data
+     * @param context state of current upload
+     * @param parser parser of lines in format of uploaded file
+     * @param checkpoint checkpoint of current upload
+     * @param last true if it is the last chunk of file, then checkpoint is replaced with fingerprint of file
+     * @throws ApplicationException thrown for the first incorrect line in chunk
+     */
+    private void commitChunk(List<CharSequence> lines, ImportContext context, CustomerLineParser parser,
+                             ImportCheckpoint checkpoint, boolean last) throws ApplicationException {
+        TransactionStatus transaction = transactionManager.getTransaction(new DefaultTransactionDefinition());
+
+        try {
+            if (parsePool == null) {
+                for (CharSequence line : lines) {
+                    uploadLine(line, context, parser);
+                }
+            } else {
+                uploadCustomersInParallel(lines, context, parser);
+            }
+            savePendingCustomers(context);
+
+            if (last) {
+                importCheckpointCrudService.delete(checkpoint);
+                recordUploadedFile(checkpoint.getFileHash(), context);
+            } else {
+                checkpoint.setLinesCommitted(checkpoint.getLinesCommitted() + lines.size());
+                importCheckpointCrudService.save(checkpoint);
+            }
+
+            // cache is transaction aware, so it is cleared only after the chunk is committed
+            cacheManager.getCache(CacheConfiguration.CUSTOMERS_CACHE).clear();
+        } catch (ApplicationException | RuntimeException e) {
+            transactionManager.rollback(transaction);
+            throw e;
+        }
+
+        transactionManager.commit(transaction);
+    }
+
+    /**
+     * Parses chunk of lines with customer data in parallel and persist created customers in order of lines. Parse time
+     * of lines is measured as elapsed time of parsing whole chunk. Rows already loaded from the same source are
+     * recognized by parallel tasks too and skipped without parsing.
+     *
+     * @param lines chunk of lines with customer data
+     * @param context state of current upload
+     * @param parser parser of lines in format of uploaded file
+     * @throws ApplicationException thrown for the first incorrect line in chunk
+     */
+    private void uploadCustomersInParallel(List<CharSequence> lines, ImportContext context, CustomerLineParser parser)
+            throws ApplicationException {
+        ParseLinesTask task = new ParseLinesTask(parser, lines, context.getSource(), context::isKnownRow);
+        long start = System.nanoTime();
+        parsePool.invoke(task);
+        long parseNanos = System.nanoTime() - start;
+
+        for (int i = 0; i < lines.size(); i++) {
+            if (task.getErrors()[i] != null) {
+                importMetrics.lineRejected(task.getErrors()[i]);
+                throw task.getErrors()[i];
+            }
+            if (task.getCustomers()[i] == null) {
+                context.addSkippedLines(1);
+                continue;
+            }
+            // time of whole chunk is added once
+            context.addParsedLines(1, parseNanos);
+            parseNanos = 0;
+            persistCustomer(task.getCustomers()[i], context);
+        }
+    }
+
+    /**
+     * Saves customer together with other customers from the same batch. Address of customer is replaced with address
+     * with the same location if such address is already used. In upsert mode stored customer with the same natural key
+     * is updated instead.
+     *
+     * @param customer customer created from line
+     * @param context state of current upload
+     */
+    private void persistCustomer(Customer customer, ImportContext context) {
+        // ensure that no additional address is saved in DB if address with same location already exist in DB
+        customer.setAddress(resolveAddress(customer.getAddress(), context));
+
+        if (context.addPendingCustomer(customer)) {
+            savePendingCustomers(context);
+        }
+    }
+
+    /**
+     * Creates customer from line with customer data in prn format. Customer and its address are not persisted.
      * @param prnFileLine line with customer data in prn format
      * @param fileName name of related prn file
+     * @param layout layout of related prn file
+     * @return customer created from line
      * @throws ApplicationException
      */
-    private void createCustomerFromPrnLine(String prnFileLine, String fileName) throws ApplicationException {
-
-        // extract all fields from line using properties defined in application.properties
-        String nameString = StringUtils.substring(prnFileLine, prnNameStart, prnNameEnd);
-        String[] names = extractNames(nameString);
-        String addressString = StringUtils.substring(prnFileLine, prnAddressStart, prnAddressEnd);
-        String postcode = StringUtils.substring(prnFileLine, prnPostcodeStart, prnPostcodeEnd);
-        String phone = StringUtils.substring(prnFileLine, prnPhoneStart, prnPhoneEnd);
-        String creditLimit = StringUtils.substring(prnFileLine, prnCreditLimitStart, prnCreditLimitEnd);
-        String birthday = StringUtils.substring(prnFileLine, prnBirthdayStart, prnBirthdayEnd);
-
-        // for all fields check if are not empty
-        for (String field : ArrayUtils.addAll(names, addressString, postcode, phone, creditLimit, birthday)) {
-            if (field.trim().length() == 0) {
-                throw new ApplicationException("Following line has incorrect format (all fields are mandatory and " +
-                                                       "can not be empty or spaces): " + prnFileLine);
-            }
-        }
+    private Customer createCustomerFromPrnLine(CharSequence prnFileLine, String fileName, PrnLayout layout)
+            throws ApplicationException {
 
-        SimpleDateFormat format = new SimpleDateFormat(prnDateFormat);
-        // not accept not existing dates line 29-02-2015
-        format.setLenient(false);
+        // extract all fields from line using column offsets of prn layout, all fields are checked
+        CustomerRecord record = layout.extract(prnFileLine);
 
         // create address from line fields
-        Address address = new Address(addressString.trim(), postcode.trim());
-        // ensure that no additional address is saved in DB if address with same location already exist in DB
-        address = addressCrudService.findSameAddress(address);
-        addressCrudService.save(address);
+        Address address = new Address(record.getStreet(), record.getPostcode());
 
         // create address from line fields
         Customer customer = new Customer();
 
-        customer.setFirstName(names[1].trim());
-        customer.setLastName(names[0].trim());
+        customer.setFirstName(record.getFirstName());
+        customer.setLastName(record.getLastName());
         customer.setAddress(address);
-        customer.setPhone(phone.trim());
-        // extract and set double value of Credit Limit
-        customer.setCreditLimit(extractCreditLimitFromPrn(creditLimit));
+        customer.setPhone(record.getPhone());
+        // extract and set Credit Limit in cents, last 2 digits are cents
+        try {
+            customer.setCreditLimitCents(CreditLimitParser.parseImpliedDecimals(record.getLine(),
+                                                                                record.getCreditLimitStart(),
+                                                                                record.getCreditLimitEnd()));
+        } catch (NumberFormatException nfe) {
+            throw new ApplicationException(creditLimitError(record), nfe);
+        }
         // extract and set Birthday
         try {
-            customer.setBirthday(new Date(format.parse(birthday.trim()).getTime()));
+            customer.setBirthday(prnBirthdayParser.parse(record.getLine(), record.getBirthdayStart(),
+                                                         record.getBirthdayEnd()));
         } catch (ParseException pe) {
-            throw new ApplicationException(
-                    "Column Birthday has incorrect format (should be " + csvDateFormat + "): " + birthday.trim(), pe);
+            throw new ApplicationException(birthdayError(record), pe);
         }
 
         // set source to mark from which file customer was loaded
         customer.setSource(fileName);
 
-        // save customer in db
-        customerCrudService.save(customer);
+        return customer;
 
     }
 
     /**
-     * Creates customer from line with customer data in csv format and persist them.
+     * Creates customer from line with customer data in csv format. Customer and its address are not persisted.
      * @param csvFileLine line with customer data in csv format
      * @param fileName name of related csv file
+     * @return customer created from line
      * @throws ApplicationException
      */
-    private void createCustomerFromCsvLine(String csvFileLine, String fileName) throws ApplicationException {
-
-        // extract Name column using quotation
-        String[] quotaSplitted = StringUtils.split(csvFileLine, '"');
+    private Customer createCustomerFromCsvLine(CharSequence csvFileLine, String fileName) throws ApplicationException {
 
-        // check if there are two columns after split
-        if (quotaSplitted.length < 2) {
-            throw new ApplicationException("Following line has incorrect format (not enough fields): " + csvFileLine);
-        }
-
-        // extract Lastname and Firstname
-        String[] names = extractNames(quotaSplitted[0]);
-
-        // extract columns other than Name
-        String[] fields = StringUtils.split(quotaSplitted[1], ',');
-
-        // check if number of columns is correct
-        if (fields.length < 5) {
-            throw new ApplicationException("Following line has incorrect format (not enough fields): " + csvFileLine);
-        }
-
-        // for all fields check if are not empty
-        for (String field : ArrayUtils.addAll(names, fields)) {
-            if (field.trim().length() == 0) {
-                throw new ApplicationException("Following line has incorrect format (all fields are mandatory and " +
-                                                       "can not be empty or spaces): " + csvFileLine);
-            }
-        }
-
-        SimpleDateFormat format = new SimpleDateFormat(csvDateFormat);
-        // not accept not existing dates line 29-02-2015
-        format.setLenient(false);
+        // split line into trimmed fields, format of line and Name column is checked
+        CustomerRecord record = CsvCustomerTokenizer.tokenize(csvFileLine);
 
         // create address from line fields
-        Address address = new Address(fields[0].trim(), fields[1].trim());
-        // ensure that no additional address is saved in DB if address with same location already exist in DB
-        address = addressCrudService.findSameAddress(address);
-        addressCrudService.save(address);
+        Address address = new Address(record.getStreet(), record.getPostcode());
 
         Customer customer = new Customer();
 
         // create address from line fields
-        customer.setFirstName(names[1].trim());
-        customer.setLastName(names[0].trim());
+        customer.setFirstName(record.getFirstName());
+        customer.setLastName(record.getLastName());
         customer.setAddress(address);
-        customer.setPhone(fields[2].trim());
-        // extract and set double value of Credit Limit
+        customer.setPhone(record.getPhone());
+        // extract and set Credit Limit in cents
         try {
-            customer.setCreditLimit(Double.parseDouble(fields[3].trim()));
+            customer.setCreditLimitCents(CreditLimitParser.parseDecimal(record.getLine(), record.getCreditLimitStart(),
+                                                                        record.getCreditLimitEnd()));
         } catch (NumberFormatException nfe) {
-            throw new ApplicationException(
-                    "Column Credit Limit has incorrect format (can't be parsed to double): " + fields[3].trim(), nfe);
+            throw new ApplicationException(creditLimitError(record), nfe);
         }
         // extract and set Birthday
         try {
-            customer.setBirthday(new Date(format.parse(fields[4].trim()).getTime()));
+            customer.setBirthday(csvBirthdayParser.parse(record.getLine(), record.getBirthdayStart(),
+                                                         record.getBirthdayEnd()));
         } catch (ParseException pe) {
-            throw new ApplicationException(
-                    "Column Birthday has incorrect format (should be " + csvDateFormat + "): " + fields[4].trim(), pe);
+            throw new ApplicationException(birthdayError(record), pe);
         }
 
         // set source to mark from which file customer was loaded
         customer.setSource(fileName);
 
-        // save customer in db
-        customerCrudService.save(customer);
+        return customer;
     }
 
     /**
-     * Extracts Lastname and Firstname from string in format "Lastname, Firstname" and return them as array of String.
-     * First element in array is Lastname, second is Firstname. If format of input param is not correct
-     * ApplicationException is thrown with dedicated message.
+     * Checks line with customer data in prn format with the same rules as used when customer is created from it.
      *
-     * @param nameString string in format "Lastname, Firstname"
-     * @throws ApplicationException
+     * @param prnFileLine line with customer data in prn format
+     * @param layout layout of related prn file
+     * @return description of error or null if line is correct
      */
-    private String[] extractNames(String nameString) throws ApplicationException {
-        String[] names = StringUtils.split(nameString, ',');
-
-        if (names.length < 2) {
-            throw new ApplicationException(
-                    "Column Name has incorrect format (should be \"Lastname, Firstname\"): \"" + nameString + "\"");
+    private String validatePrnLine(CharSequence prnFileLine, PrnLayout layout) {
+        CustomerRecord record = layout.scan(prnFileLine);
+        if (record.getError() != null) {
+            return record.getError();
         }
-        return names;
+        if (!CreditLimitParser.isImpliedDecimals(record.getLine(), record.getCreditLimitStart(),
+                                                 record.getCreditLimitEnd())) {
+            return creditLimitError(record);
+        }
+        if (!prnBirthdayParser.isValid(record.getLine(), record.getBirthdayStart(), record.getBirthdayEnd())) {
+            return birthdayError(record);
+        }
+        return null;
     }
 
     /**
-     * Extracts double value of Credit Limit delivered as String.
-     * If creditLimitString is longer or equal 3 then last 3 characters are treated as fractional part.
-     * If creditLimitString is smaller that 3 then no fractional part is used.
-     * If format of input param is not correct ApplicationException is thrown with dedicated message.
-     * @param creditLimitString prn format string representing Credit Limit
-     * @throws ApplicationException
+     * Checks line with customer data in csv format with the same rules as used when customer is created from it.
+     *
+     * @param csvFileLine line with customer data in csv format
+     * @return description of error or null if line is correct
      */
-    private double extractCreditLimitFromPrn(String creditLimitString) throws ApplicationException {
-        double creditLimit;
+    private String validateCsvLine(CharSequence csvFileLine) {
+        CustomerRecord record = CsvCustomerTokenizer.scan(csvFileLine);
+        if (record.getError() != null) {
+            return record.getError();
+        }
+        if (!CreditLimitParser.isDecimal(record.getLine(), record.getCreditLimitStart(), record.getCreditLimitEnd())) {
+            return creditLimitError(record);
+        }
+        if (!csvBirthdayParser.isValid(record.getLine(), record.getBirthdayStart(), record.getBirthdayEnd())) {
+            return birthdayError(record);
+        }
+        return null;
+    }
+
+    private static String creditLimitError(CustomerRecord record) {
+        return "Column Credit Limit has incorrect format (can't be parsed to double): " + record.getCreditLimit();
+    }
 
-        String adjustedCreditLimitString = creditLimitString.trim();
+    private String birthdayError(CustomerRecord record) {
+        // message names csv date format, as it always did for prn files
+        return "Column Birthday has incorrect format (should be " + csvBirthdayParser.getPattern() + "): " +
+                record.getBirthday();
+    }
 
-        if (adjustedCreditLimitString.length() >= 3) {
-            adjustedCreditLimitString = new StringBuilder(adjustedCreditLimitString).insert(
-                    adjustedCreditLimitString.length() - 2, '.').toString();
+    /**
+     * Saves batch of customers created from lines since last save, new customers are inserted and stored customers
+     * are updated. In upsert mode new customers of the batch are first matched with stored customers by their keys.
+     * Metrics of the batch are reported.
+     *
+     * @param context state of current upload
+     */
+    private void savePendingCustomers(ImportContext context) {
+        if (context.getNaturalKey() != null && !context.getPendingCustomers().isEmpty()) {
+            // only keys of this batch are looked up, so stored customers are not all read for every upload
+            context.matchStoredCustomers(customerCrudService.findIdsByNaturalKey(context.getNaturalKey(),
+                                                                                 context.getPendingCustomers()));
         }
+        int customers = context.getPendingCustomers().size() + context.getPendingUpdates().size();
+        if (customers > 0) {
+            long start = System.nanoTime();
+            if (!context.getPendingCustomers().isEmpty()) {
+                customerCrudService.saveBatch(context.getPendingCustomers());
+            }
+            if (!context.getPendingUpdates().isEmpty()) {
+                customerCrudService.updateBatch(context.getPendingUpdates());
+            }
+            importMetrics.batchSaved(customers, System.nanoTime() - start);
 
-        try {
-            creditLimit = Double.parseDouble(adjustedCreditLimitString);
-        } catch (NumberFormatException nfe) {
-            throw new ApplicationException(
-                    "Column Credit Limit has incorrect format (can't be parsed to double): " + creditLimitString, nfe);
+            context.getProgress().addPersistedRows(customers);
+            context.clearPendingCustomers();
+        }
+
+        importMetrics.linesParsed(context.getParsedLines(), context.getParseNanos());
+        importMetrics.linesSkipped(context.getSkippedLines());
+        context.resetReportedLines();
+    }
+
+    /**
+     * Returns address with the same location that is already used in current upload or exist in DB. If there is no
+     * such address then given address is saved in DB. Every location is looked up in DB at most once per upload.
+     * Uploads may run concurrently and their new addresses are committed with their customers, so the location is
+     * locked while it is looked up and location inserted by other upload which is not finished yet is looked up again
+     * (after that upload commits or rolls back), so the same location is never saved twice.
+     *
+     * @param address address created from line fields
+     * @param context state of current upload
+     * @return persisted address with the same location
+     */
+    private Address resolveAddress(Address address, ImportContext context) {
+        Address knownAddress = context.getKnownAddress(address);
+
+        if (knownAddress == null) {
+            long start = System.nanoTime();
+            Object lock = addressLocks[Math.floorMod(ImportContext.locationKey(address).hashCode(),
+                                                     addressLocks.length)];
+            for (int attempt = 0; knownAddress == null; attempt++) {
+                if (attempt == addressAttempts) {
+                    throw new ConcurrencyFailureException("Address " + address.getStreet() + ", " +
+                                                          address.getPostcode() + " is being saved by other upload");
+                }
+                // lock is not held between attempts, so other upload may finish meanwhile
+                synchronized (lock) {
+                    knownAddress = addressCrudService.findOrCreate(address);
+                }
+            }
+            importMetrics.addressLookedUp(System.nanoTime() - start);
+            context.addKnownAddress(knownAddress);
         }
-        return creditLimit;
+
+        return knownAddress;
     }
 }
@@ -0,0 +1,59 @@
+package com.herbet.ffm.service;
+
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join task checking chunk of lines with customer data. Chunk is split in halves until parts are small enough to
+ * be checked by single thread. Unlike parsing, checking goes on after incorrect line, so all errors are found.
+ */
+class ValidateLinesTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    // number of lines checked by single thread without further splitting
+    private static final int LINES_PER_TASK = 256;
+
+    private final CustomerLineValidator validator;
+
+    private final List<CharSequence> lines;
+
+    private final String[] errors;
+
+    private final int from;
+
+    private final int to;
+
+    ValidateLinesTask(CustomerLineValidator validator, List<CharSequence> lines) {
+        this(validator, lines, new String[lines.size()], 0, lines.size());
+    }
+
+    private ValidateLinesTask(CustomerLineValidator validator, List<CharSequence> lines, String[] errors, int from,
+                              int to) {
+        this.validator = validator;
+        this.lines = lines;
+        this.errors = errors;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * @return errors of incorrect lines, by index of line; null for correct lines
+     */
+    String[] getErrors() {
+        return errors;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= LINES_PER_TASK) {
+            for (int i = from; i < to; i++) {
+                errors[i] = validator.validate(lines.get(i));
+            }
+        } else {
+            int middle = (from + to) >>> 1;
+            invokeAll(new ValidateLinesTask(validator, lines, errors, from, middle),
+                      new ValidateLinesTask(validator, lines, errors, middle, to));
+        }
+    }
+}
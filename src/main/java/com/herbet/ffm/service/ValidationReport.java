@@ -0,0 +1,98 @@
+package com.herbet.ffm.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of checking customers file without loading it. Every incorrect line is counted, but only limited number of
+ * errors is listed, so report of completely wrong file stays small.
+ */
+public class ValidationReport {
+
+    private final String fileName;
+
+    private final int maxErrors;
+
+    private final List<LineError> errors = new ArrayList<>();
+
+    // lines with customer data, header is not counted
+    private long lines;
+
+    private long incorrectLines;
+
+    ValidationReport(String fileName, int maxErrors) {
+        this.fileName = fileName;
+        this.maxErrors = maxErrors;
+    }
+
+    void addLines(long lines) {
+        this.lines += lines;
+    }
+
+    /**
+     * Counts incorrect line and lists its error if limit of errors is not reached.
+     *
+     * @param lineNumber number of line in file, header is line 1
+     * @param message description of error
+     */
+    void addError(long lineNumber, String message) {
+        incorrectLines++;
+        if (errors.size() < maxErrors) {
+            errors.add(new LineError(lineNumber, message));
+        }
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public long getLines() {
+        return lines;
+    }
+
+    public long getIncorrectLines() {
+        return incorrectLines;
+    }
+
+    public boolean isValid() {
+        return incorrectLines == 0;
+    }
+
+    /**
+     * @return errors in order of lines, at most limit of them
+     */
+    public List<LineError> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * @return true if not all errors are listed
+     */
+    public boolean isErrorsTruncated() {
+        return incorrectLines > errors.size();
+    }
+
+    /**
+     * Error found in single line of file.
+     */
+    public static class LineError {
+
+        private final long lineNumber;
+
+        private final String message;
+
+        LineError(long lineNumber, String message) {
+            this.lineNumber = lineNumber;
+            this.message = message;
+        }
+
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.herbet.ffm.parser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class BirthdayParserTest {
+
+    private static final String[] PATTERNS = {"dd/MM/yyyy", "yyyyMMdd", "yyyy-MM-dd", "d.M.yy"};
+
+    // texts covering fast path, not existing dates and texts handled by SimpleDateFormat only
+    private static final String[] TEXTS = {
+            "01/01/1987", "29/02/2018", "29/02/2016", "29/02/1900", "29/02/2000", "31/04/1987", "00/01/1987",
+            "01/13/1987", "01/00/1987", "01-01-1987", "1/1/1987", "01/01/87", "01/01/1987x", "01/01/0099",
+            "19870101", "20150229", "19640904", "1965-04-22", "15821010", "00000101", "19871301", "1987011",
+            "2018-02-29", "2016-02-29", "1.1.87", "", "a"};
+
+    @Test
+    public void sameResultAsSimpleDateFormat() {
+        // test that parser accepts and rejects (also when only checking) the same texts as non-lenient SimpleDateFormat
+
+        for (String pattern : PATTERNS) {
+            BirthdayParser parser = new BirthdayParser(pattern);
+            for (String text : TEXTS) {
+                assertSameResult(parser, pattern, text);
+            }
+        }
+    }
+
+    @Test
+    public void sameResultForRandomDates() {
+        // test that fast path gives the same dates as SimpleDateFormat, also when dates are taken from cache
+
+        Random random = new Random(20171120L);
+        for (String pattern : new String[]{"dd/MM/yyyy", "yyyyMMdd"}) {
+            BirthdayParser parser = new BirthdayParser(pattern);
+            for (int i = 0; i < 20000; i++) {
+                String text = pattern.replace("dd", twoDigits(random.nextInt(33)))
+                        .replace("MM", twoDigits(random.nextInt(14)))
+                        .replace("yyyy", String.valueOf(1590 + random.nextInt(500)));
+                assertSameResult(parser, pattern, text);
+            }
+        }
+    }
+
+    @Test
+    public void parserSharedByThreads() throws Exception {
+        // test that one parser gives correct dates when used by many threads
+
+        BirthdayParser parser = new BirthdayParser("yyyyMMdd");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                results.add(executor.submit(() -> {
+                    SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd");
+                    for (int i = 0; i < 20000; i++) {
+                        String text = String.valueOf(19000101 + (i % 28) + 100 * (i % 12) + 10000 * (i % 100));
+                        if (parser.parse(text).getTime() != format.parse(text).getTime()) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertThat(result.get()).isTrue();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void assertSameResult(BirthdayParser parser, String pattern, String text) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern);
+        format.setLenient(false);
+
+        String expected;
+        try {
+            expected = String.valueOf(format.parse(text).getTime());
+        } catch (ParseException pe) {
+            expected = "ParseException";
+        }
+
+        String actual;
+        try {
+            actual = String.valueOf(parser.parse(text).getTime());
+        } catch (ParseException pe) {
+            actual = "ParseException";
+        }
+
+        assertThat(actual).as("result of " + pattern + " for: " + text).isEqualTo(expected);
+        assertThat(parser.isValid(text, 0, text.length())).as("check of " + pattern + " for: " + text)
+                .isEqualTo(!expected.equals("ParseException"));
+    }
+
+    private static String twoDigits(int number) {
+        return number < 10 ? "0" + number : String.valueOf(number);
+    }
+}
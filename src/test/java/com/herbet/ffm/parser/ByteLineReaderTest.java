@@ -0,0 +1,100 @@
+package com.herbet.ffm.parser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ByteLineReaderTest {
+
+    private static final Charset CP1252 = Charset.forName("Cp1252");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void linesSplitLikeBufferedReader() throws Exception {
+        // test that memory-mapped and streamed files are split into the same lines as by BufferedReader
+
+        String[] contents = {"", "a", "a\n", "a\r\nb", "a\n\nb\n", "\n", "a\r\n\r\nbc\r\n", "Bürkestraße 32\nSmith"};
+
+        for (String content : contents) {
+            List<String> expected = new ArrayList<>();
+            new BufferedReader(new StringReader(content)).lines().forEach(expected::add);
+
+            assertThat(readMapped(content)).as("mapped lines of: " + content).isEqualTo(expected);
+            assertThat(readStreamed(content)).as("streamed lines of: " + content).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void linesCrossingStreamChunks() throws Exception {
+        // test that lines crossing chunks read from stream are joined correctly
+
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 30000; i++) {
+            content.append("Johnson, John   Voorstraat 32         3122gg   020 3849381        1000000 ").append(i)
+                    .append('\n');
+        }
+
+        List<String> lines = readStreamed(content.toString());
+
+        assertThat(lines).hasSize(30000);
+        assertThat(lines.get(29999)).endsWith(" 29999");
+    }
+
+    @Test
+    public void fieldsDecodedFromBytes() throws Exception {
+        // test that prn fields are extracted from line backed by bytes of file in Cp1252 encoding
+
+        PrnLayout layout = new PrnLayout(0, 16, 16, 38, 38, 47, 47, 61, 61, 74, 74, 83);
+        String line = "Smith, John     Bürkestraße 32        87823    +44 728 889838      989830 19990920";
+
+        try (ByteLineReader reader = ByteLineReader.open(new ByteArrayInputStream(line.getBytes(CP1252)), CP1252)) {
+            CustomerRecord record = layout.extract(reader.readLine());
+
+            assertThat(record.getLastName()).isEqualTo("Smith");
+            assertThat(record.getFirstName()).isEqualTo("John");
+            assertThat(record.getStreet()).isEqualTo("Bürkestraße 32");
+            assertThat(record.getPostcode()).isEqualTo("87823");
+            assertThat(record.getPhone()).isEqualTo("+44 728 889838");
+            assertThat(record.getCreditLimit()).isEqualTo("989830");
+            assertThat(record.getBirthday()).isEqualTo("19990920");
+        }
+    }
+
+    private List<String> readMapped(String content) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), content.getBytes(CP1252));
+
+        try (ByteLineReader reader = ByteLineReader.open(file.toPath(), CP1252)) {
+            return readAll(reader);
+        }
+    }
+
+    private static List<String> readStreamed(String content) throws IOException {
+        try (ByteLineReader reader = ByteLineReader.open(new ByteArrayInputStream(content.getBytes(CP1252)), CP1252)) {
+            return readAll(reader);
+        }
+    }
+
+    private static List<String> readAll(LineReader reader) throws IOException {
+        List<String> lines = new ArrayList<>();
+        CharSequence line;
+        while ((line = reader.readLine()) != null) {
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+}
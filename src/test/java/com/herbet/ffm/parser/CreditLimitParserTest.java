@@ -0,0 +1,117 @@
+package com.herbet.ffm.parser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import org.junit.Test;
+
+public class CreditLimitParserTest {
+
+    @Test
+    public void decimalAmounts() {
+        // test that csv amounts are parsed to exact cents
+
+        assertThat(parseDecimal("109093")).isEqualTo(10909300L);
+        assertThat(parseDecimal("54.5")).isEqualTo(5450L);
+        assertThat(parseDecimal("9898.35")).isEqualTo(989835L);
+        assertThat(parseDecimal("-12.05")).isEqualTo(-1205L);
+        assertThat(parseDecimal("+7.")).isEqualTo(700L);
+        assertThat(parseDecimal(".1")).isEqualTo(10L);
+        assertThat(parseDecimal("0.1")).isEqualTo(10L);
+    }
+
+    @Test
+    public void incorrectDecimalAmounts() {
+        // test that text which is not amount with at most 2 fraction digits is rejected
+
+        for (String text : new String[]{"", "-", ".", "100j00", "1.234", "1..2", "1e5", "NaN", "1,5", "123456789012345678"}) {
+            try {
+                parseDecimal(text);
+                fail("amount accepted: " + text);
+            } catch (NumberFormatException nfe) {
+                assertThat(nfe.getMessage()).contains(text);
+            }
+        }
+    }
+
+    @Test
+    public void largestDecimalAmounts() {
+        // test that amounts are accepted up to the largest long in cents and larger amounts are rejected, not overflown
+
+        assertThat(parseDecimal("92233720368547758")).isEqualTo(9223372036854775800L);
+        assertThat(parseDecimal("-92233720368547758")).isEqualTo(-9223372036854775800L);
+        assertThat(parseDecimal("9223372036854775.8")).isEqualTo(922337203685477580L);
+
+        for (String text : new String[]{"92233720368547759", "99999999999999999", "-99999999999999999"}) {
+            assertThat(CreditLimitParser.isDecimal(text, 0, text.length())).as("csv amount: " + text).isFalse();
+            assertThat(parses(() -> parseDecimal(text))).as("csv amount: " + text).isFalse();
+        }
+    }
+
+    @Test
+    public void impliedDecimalsAmounts() {
+        // test that prn amounts have cents in last 2 digits, unless they are shorter than 3 characters
+
+        assertThat(parseImpliedDecimals("10909300")).isEqualTo(10909300L);
+        assertThat(parseImpliedDecimals("5400")).isEqualTo(5400L);
+        assertThat(parseImpliedDecimals("100")).isEqualTo(100L);
+        assertThat(parseImpliedDecimals("-12")).isEqualTo(-12L);
+        assertThat(parseImpliedDecimals("54")).isEqualTo(5400L);
+        assertThat(parseImpliedDecimals("-5")).isEqualTo(-500L);
+    }
+
+    @Test
+    public void incorrectImpliedDecimalsAmounts() {
+        // test that prn amounts with characters other than sign and digits are rejected
+
+        for (String text : new String[]{"", "+", "10.00", "100j00", "1e300", "123456789012345678"}) {
+            try {
+                parseImpliedDecimals(text);
+                fail("amount accepted: " + text);
+            } catch (NumberFormatException nfe) {
+                assertThat(nfe.getMessage()).contains(text);
+            }
+        }
+    }
+
+    @Test
+    public void amountsCheckedWithoutParsing() {
+        // test that amounts are checked with the same rules as they are parsed
+
+        for (String text : new String[]{"109093", "54.5", "-12.05", "+7.", ".1", "", "-", "100j00", "1.234", "1,5"}) {
+            assertThat(CreditLimitParser.isDecimal(text, 0, text.length())).as("csv amount: " + text)
+                    .isEqualTo(parses(() -> parseDecimal(text)));
+        }
+        for (String text : new String[]{"10909300", "54", "-5", "", "+", "10.00", "1e300", "123456789012345678"}) {
+            assertThat(CreditLimitParser.isImpliedDecimals(text, 0, text.length())).as("prn amount: " + text)
+                    .isEqualTo(parses(() -> parseImpliedDecimals(text)));
+        }
+    }
+
+    @Test
+    public void amountInsideLine() {
+        // test that only given part of line is parsed
+
+        String line = "020 3849381,10000,01/01/1987";
+
+        assertThat(CreditLimitParser.parseDecimal(line, 12, 17)).isEqualTo(1000000L);
+        assertThat(CreditLimitParser.parseImpliedDecimals(line, 12, 17)).isEqualTo(10000L);
+    }
+
+    private static boolean parses(Runnable parse) {
+        try {
+            parse.run();
+            return true;
+        } catch (NumberFormatException nfe) {
+            return false;
+        }
+    }
+
+    private static long parseDecimal(String text) {
+        return CreditLimitParser.parseDecimal(text, 0, text.length());
+    }
+
+    private static long parseImpliedDecimals(String text) {
+        return CreditLimitParser.parseImpliedDecimals(text, 0, text.length());
+    }
+}
@@ -0,0 +1,126 @@
+package com.herbet.ffm.parser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.herbet.ffm.exception.ApplicationException;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class CsvCustomerTokenizerTest {
+
+    // lines covering all rules of csv format, including incorrect ones
+    private static final String[] LINES = {
+            "\"Johnson, John\",Voorstraat 32,3122gg,020 3849381,10000,01/01/1987",
+            "\"Johnson, John\",Voorstraat 32,3122gg,020 3849381,01/01/1987",
+            "Johnson, John,Voorstraat 32,3122gg,020 3849381,10000,01/01/1987",
+            "\"Benetar Pat\",Driehoog 3zwart,2340 CC,06-28938945,54,04/09/1964",
+            "\"Benetar, Pat\",Driehoog 3zwart,  ,06-28938945,54,04/09/1964",
+            "\"Benetar, Pat\",,,Driehoog 3zwart,,2340 CC,06-28938945,54,04/09/1964,,",
+            "\"Benetar, Pat\",Driehoog 3zwart,2340 CC,06-28938945,54,04/09/1964,extra,  ",
+            "\"\"Benetar, Pat\"\",Driehoog 3zwart,2340 CC,06-28938945,54,04/09/1964\"ignored\"",
+            "\" Benetar ,  Pat \", Driehoog 3zwart , 2340 CC ,06-28938945 , 54,04/09/1964\t",
+            "\"Benetar, Pat, Jr\",Driehoog 3zwart,2340 CC,06-28938945,54,04/09/1964",
+            "\"Benetar,  \",Driehoog 3zwart,2340 CC,06-28938945,54,04/09/1964",
+            "\"  , Pat\",Driehoog 3zwart,2340 CC,06-28938945",
+            "\",,\",Driehoog 3zwart,2340 CC,06-28938945,54,04/09/1964",
+            "\"Benetar, Pat\"",
+            "\"Benetar, Pat\"\"\"",
+            "\"\"\"\"",
+            "",
+            ",,,,,,"};
+
+    @Test
+    public void sameResultAsSplitting() {
+        // test that tokenizer gives the same fields and error messages as splitting line on quotations and commas
+
+        for (String line : LINES) {
+            assertSameResult(line);
+        }
+    }
+
+    @Test
+    public void sameResultAsSplittingForRandomLines() {
+        // test that tokenizer gives the same result as splitting for random lines built from significant characters
+
+        char[] alphabet = {'"', ',', ' ', '\t', 'a', 'B', '1'};
+        Random random = new Random(20171120L);
+
+        for (int i = 0; i < 20000; i++) {
+            char[] line = new char[random.nextInt(40)];
+            for (int j = 0; j < line.length; j++) {
+                line[j] = alphabet[random.nextInt(alphabet.length)];
+            }
+            assertSameResult(new String(line));
+        }
+    }
+
+    @Test
+    public void fieldsTrimmed() throws Exception {
+        // test that all fields of record are trimmed
+
+        CustomerRecord record = CsvCustomerTokenizer.tokenize(
+                "\" Anderson , Paul \", Dorpsplein 3A ,4532 AA , 030 3458986,109093 , 03/12/1965 ");
+
+        assertThat(record.getLastName()).isEqualTo("Anderson");
+        assertThat(record.getFirstName()).isEqualTo("Paul");
+        assertThat(record.getStreet()).isEqualTo("Dorpsplein 3A");
+        assertThat(record.getPostcode()).isEqualTo("4532 AA");
+        assertThat(record.getPhone()).isEqualTo("030 3458986");
+        assertThat(record.getCreditLimit()).isEqualTo("109093");
+        assertThat(record.getBirthday()).isEqualTo("03/12/1965");
+    }
+
+    private static void assertSameResult(String line) {
+        String expected;
+        try {
+            expected = StringUtils.join(split(line), '|');
+        } catch (ApplicationException ae) {
+            expected = ae.getMessage();
+        }
+
+        String actual;
+        try {
+            CustomerRecord record = CsvCustomerTokenizer.tokenize(line);
+            actual = StringUtils.join(new String[]{record.getLastName(), record.getFirstName(), record.getStreet(),
+                                                   record.getPostcode(), record.getPhone(), record.getCreditLimit(),
+                                                   record.getBirthday()}, '|');
+        } catch (ApplicationException ae) {
+            actual = ae.getMessage();
+        }
+
+        assertThat(actual).as("result for line: " + line).isEqualTo(expected);
+    }
+
+    // splitting of csv line used before tokenizer was introduced
+    private static String[] split(String csvFileLine) throws ApplicationException {
+        String[] quotaSplitted = StringUtils.split(csvFileLine, '"');
+        if (quotaSplitted.length < 2) {
+            throw new ApplicationException("Following line has incorrect format (not enough fields): " + csvFileLine);
+        }
+
+        String[] names = StringUtils.split(quotaSplitted[0], ',');
+        if (names.length < 2) {
+            throw new ApplicationException(
+                    "Column Name has incorrect format (should be \"Lastname, Firstname\"): \"" + quotaSplitted[0] +
+                            "\"");
+        }
+
+        String[] fields = StringUtils.split(quotaSplitted[1], ',');
+        if (fields.length < 5) {
+            throw new ApplicationException("Following line has incorrect format (not enough fields): " + csvFileLine);
+        }
+
+        for (String field : ArrayUtils.addAll(names, fields)) {
+            if (field.trim().length() == 0) {
+                throw new ApplicationException("Following line has incorrect format (all fields are mandatory and " +
+                                                       "can not be empty or spaces): " + csvFileLine);
+            }
+        }
+
+        return new String[]{names[0].trim(), names[1].trim(), fields[0].trim(), fields[1].trim(), fields[2].trim(),
+                            fields[3].trim(), fields[4].trim()};
+    }
+}
@@ -0,0 +1,88 @@
+package com.herbet.ffm.parser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class DecompressionTest {
+
+    private static final String CONTENT = "Name,Address,Postcode,Phone,Credit Limit,Birthday\n" +
+            "\"Johnson, John\",Voorstraat 32,3122gg,020 3849381,10000,01/01/1987\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void compressedContentInflated() throws Exception {
+        // test that gzip and deflate compressed content is recognized and inflated, plain content is read as it is
+
+        assertThat(read(gzip(CONTENT))).isEqualTo(CONTENT);
+        assertThat(read(deflate(CONTENT))).isEqualTo(CONTENT);
+        assertThat(read(CONTENT.getBytes(StandardCharsets.UTF_8))).isEqualTo(CONTENT);
+        assertThat(read(new byte[]{'x'})).isEqualTo("x");
+        assertThat(read(new byte[0])).isEmpty();
+    }
+
+    @Test
+    public void compressedFileRecognized() throws Exception {
+        // test that compressed file is recognized by its first bytes, whatever its name is
+
+        File compressed = folder.newFile("customers.csv");
+        Files.write(compressed.toPath(), gzip(CONTENT));
+        File plain = folder.newFile("customers.csv.gz");
+        Files.write(plain.toPath(), CONTENT.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(Decompression.isCompressed(compressed.toPath())).isTrue();
+        assertThat(Decompression.isCompressed(plain.toPath())).isFalse();
+    }
+
+    @Test
+    public void extensionOfCompressionStripped() {
+        // test that only extension of compression is removed from name of file
+
+        assertThat(Decompression.stripExtension("customers.csv.gz")).isEqualTo("customers.csv");
+        assertThat(Decompression.stripExtension("customers.PRN.GZ")).isEqualTo("customers.PRN");
+        assertThat(Decompression.stripExtension("customers.csv")).isEqualTo("customers.csv");
+    }
+
+    private static String read(byte[] content) throws IOException {
+        try (InputStream input = Decompression.open(new ByteArrayInputStream(content))) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = input.read(buffer)) > 0) {
+                output.write(buffer, 0, read);
+            }
+            return new String(output.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static byte[] gzip(String content) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (OutputStream compressed = new GZIPOutputStream(output)) {
+            compressed.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return output.toByteArray();
+    }
+
+    private static byte[] deflate(String content) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (OutputStream compressed = new DeflaterOutputStream(output)) {
+            compressed.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,68 @@
+package com.herbet.ffm.parser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class PrnLayoutTest {
+
+    private static final String HEADER =
+            "Name            Address               Postcode Phone         Credit Limit Birthday";
+
+    private static final String LINE =
+            "Johnson, John   Voorstraat 32         3122gg   020 3849381        1000000 19870101";
+
+    // layout configured in application.properties
+    private static final PrnLayout CONFIGURED_LAYOUT = new PrnLayout(0, 16, 16, 38, 38, 47, 47, 61, 61, 74, 74, 83);
+
+    @Test
+    public void detectedLayoutSameAsConfigured() throws Exception {
+        // test that layout detected from standard header extracts the same fields as configured layout
+
+        assertSameFields(PrnLayout.detect(HEADER).extract(LINE), CONFIGURED_LAYOUT.extract(LINE));
+    }
+
+    @Test
+    public void widenedColumnsDetected() throws Exception {
+        // test that columns wider than configured are found by labels in header
+
+        String header = "Name                 Address               Postcode   Phone         Credit Limit  Birthday";
+        String line = "Johnson, John        Voorstraat 32         3122gg     020 3849381        1000000  19870101";
+
+        assertSameFields(PrnLayout.detect(header).extract(line), CONFIGURED_LAYOUT.extract(LINE));
+    }
+
+    @Test
+    public void headerWithoutLabelsNotDetected() {
+        // test that no layout is detected if label of any column is missing or is only part of longer word
+
+        assertThat(PrnLayout.detect("Name            Address               Postcode Phone         Credit Limit"))
+                .isNull();
+        assertThat(PrnLayout.detect(HEADER.replace("Name ", "Names"))).isNull();
+        assertThat(PrnLayout.detect("Johnson, John   Voorstraat 32         3122gg   020 3849381        1000000"))
+                .isNull();
+    }
+
+    @Test
+    public void layoutCachedByHeader() {
+        // test that layout is detected once for the same header and configured layout is used for unknown header
+
+        PrnLayoutDetector detector = new PrnLayoutDetector(CONFIGURED_LAYOUT);
+
+        PrnLayout layout = detector.layoutOf(HEADER);
+        assertThat(layout).isNotSameAs(CONFIGURED_LAYOUT);
+        assertThat(detector.layoutOf(new StringBuilder(HEADER))).isSameAs(layout);
+        assertThat(detector.layoutOf("Name;Address;Postcode")).isSameAs(CONFIGURED_LAYOUT);
+        assertThat(detector.layoutOf(null)).isSameAs(CONFIGURED_LAYOUT);
+    }
+
+    private static void assertSameFields(CustomerRecord actual, CustomerRecord expected) {
+        assertThat(actual.getLastName()).isEqualTo(expected.getLastName());
+        assertThat(actual.getFirstName()).isEqualTo(expected.getFirstName());
+        assertThat(actual.getStreet()).isEqualTo(expected.getStreet());
+        assertThat(actual.getPostcode()).isEqualTo(expected.getPostcode());
+        assertThat(actual.getPhone()).isEqualTo(expected.getPhone());
+        assertThat(actual.getCreditLimit()).isEqualTo(expected.getCreditLimit());
+        assertThat(actual.getBirthday()).isEqualTo(expected.getBirthday());
+    }
+}
@@ -0,0 +1,86 @@
+package com.herbet.ffm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.herbet.ffm.Application;
+import com.herbet.ffm.entity.Address;
+import com.herbet.ffm.entity.Customer;
+import com.herbet.ffm.repository.AddressRepository;
+import com.herbet.ffm.repository.CustomerRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.sql.Date;
+
+// not transactional, cache is updated only when transaction is committed
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {UploadCustomersService.class, AddressCrudService.class, CustomerCrudService.class, AddressRepository.class, CustomerRepository.class, Application.class})
+public class CachedCustomerCrudServiceTest {
+
+    @Autowired
+    private UploadCustomersService uploadCustomersService;
+
+    @Autowired
+    private CustomerCrudService customerCrudService;
+
+    @Autowired
+    private AddressCrudService addressCrudService;
+
+    private long customerId;
+
+    @Before
+    public void saveCustomer() {
+        clearRepositories();
+
+        Address address = addressCrudService.save(new Address("Voorstraat 32", "3122gg"));
+        customerId = customerCrudService.save(
+                new Customer("John", "Johnson", address, "020 3849381", 1000000L, Date.valueOf("1987-01-01"), "test"))
+                .getId();
+    }
+
+    @After
+    public void clearRepositories() {
+        // deleting all objects from db2, as data is committed
+        customerCrudService.deleteAll();
+        addressCrudService.deleteAll();
+    }
+
+    @Test
+    public void customerServedFromCache() {
+        // test that customer found again is taken from cache together with its address
+
+        Customer customer = customerCrudService.findOne(customerId);
+
+        assertThat(customerCrudService.findOne(customerId)).isSameAs(customer);
+        assertThat(customer.getAddress().getStreet()).isEqualTo("Voorstraat 32");
+    }
+
+    @Test
+    public void cacheClearedByDeleteAll() {
+        // test that deleted customers are not served from cache
+
+        customerCrudService.findOne(customerId);
+        customerCrudService.deleteAll();
+
+        assertThat(customerCrudService.findOne(customerId)).isNull();
+    }
+
+    @Test
+    public void cacheClearedByUpload() throws Exception {
+        // test that cached customers are loaded again after upload
+
+        Customer customer = customerCrudService.findOne(customerId);
+        String content = "Name,Address,Postcode,Phone,Credit Limit,Birthday\n" +
+                "\"Johnson, Jane\",Voorstraat 32,3122gg,020 3849381,10000,01/01/1987";
+        uploadCustomersService.uploadCustomersFromFile(
+                new MockMultipartFile("customers.csv", "customers.csv", "text/*", content.getBytes()));
+
+        assertThat(customerCrudService.findOne(customerId)).isNotSameAs(customer);
+    }
+}
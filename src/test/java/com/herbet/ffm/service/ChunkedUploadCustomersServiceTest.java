@@ -0,0 +1,200 @@
+package com.herbet.ffm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import com.herbet.ffm.Application;
+import com.herbet.ffm.entity.Address;
+import com.herbet.ffm.entity.Customer;
+import com.herbet.ffm.entity.ImportCheckpoint;
+import com.herbet.ffm.exception.ApplicationException;
+import com.herbet.ffm.repository.AddressRepository;
+import com.herbet.ffm.repository.CustomerRepository;
+import com.herbet.ffm.repository.ImportCheckpointRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+
+// not transactional, every chunk is committed in its own transaction
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {UploadCustomersService.class, AddressCrudService.class, CustomerCrudService.class, ImportCheckpointCrudService.class, AddressRepository.class, CustomerRepository.class, ImportCheckpointRepository.class, Application.class})
+public class ChunkedUploadCustomersServiceTest {
+
+    private static final int GENERATED_LINES = 25;
+
+    private static final int CHUNK_SIZE = 5;
+
+    @Autowired
+    private UploadCustomersService uploadCustomersService;
+
+    @Autowired
+    private CustomerCrudService customerCrudService;
+
+    @Autowired
+    private AddressCrudService addressCrudService;
+
+    @Autowired
+    private ImportCheckpointCrudService importCheckpointCrudService;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    @After
+    public void clearRepositories() {
+        // deleting all objects from db2 before and after running test, as data of chunks is committed
+        customerCrudService.deleteAll();
+        addressCrudService.deleteAll();
+        importCheckpointCrudService.deleteAll();
+    }
+
+    @Test
+    public void fileCommittedInChunks() throws Exception {
+        // test that all lines are loaded and checkpoint is removed when the last chunk is committed
+
+        File file = writeCsvFile(generateCsvLines());
+        ImportProgress progress = new ImportProgress();
+
+        uploadCustomersService.uploadCustomersFromFileInChunks(file.toPath(), "generated.csv", progress, CHUNK_SIZE);
+
+        assertThat(customerCrudService.count()).isEqualTo((long) GENERATED_LINES);
+        assertThat(progress.getRowsPersisted()).isEqualTo((long) GENERATED_LINES);
+        assertThat(importCheckpointCrudService.count()).isEqualTo(0L);
+    }
+
+    @Test
+    public void committedChunksKeptOnFailure() throws Exception {
+        // test that chunks before incorrect line stay committed and checkpoint holds number of their lines
+
+        List<String> lines = generateCsvLines();
+        lines.set(12, "\"Benetar Pat\",Driehoog 3zwart,2340 CC,06-28938945,54,04/09/1964");
+        File file = writeCsvFile(lines);
+
+        try {
+            uploadCustomersService.uploadCustomersFromFileInChunks(file.toPath(), "generated.csv",
+                                                                   new ImportProgress(), CHUNK_SIZE);
+            fail("incorrect line accepted");
+        } catch (ApplicationException ae) {
+            assertThat(ae.getMessage()).startsWith("Column Name has incorrect format");
+        }
+
+        assertThat(customerCrudService.count()).isEqualTo(10L);
+        assertThat(importCheckpointCrudService.findOne(FileHash.sha256(file.toPath()), "generated.csv")
+                           .getLinesCommitted()).isEqualTo(10L);
+    }
+
+    @Test
+    public void uploadResumedFromCheckpoint() throws Exception {
+        // test that lines committed by previous upload of the same file from the same source are skipped
+
+        File file = writeCsvFile(generateCsvLines());
+        ImportCheckpoint checkpoint = new ImportCheckpoint(FileHash.sha256(file.toPath()), "generated.csv");
+        checkpoint.setLinesCommitted(10);
+        importCheckpointCrudService.save(checkpoint);
+        ImportProgress progress = new ImportProgress();
+
+        uploadCustomersService.uploadCustomersFromFileInChunks(file.toPath(), "generated.csv", progress, CHUNK_SIZE);
+
+        List<Customer> customers = new ArrayList<>();
+        customerCrudService.findAll().forEach(customers::add);
+        customers.sort((c1, c2) -> Long.compare(c1.getId(), c2.getId()));
+
+        assertThat(customers).hasSize(GENERATED_LINES - 10);
+        assertThat(customers.get(0).getFirstName()).isEqualTo("First10");
+        assertThat(progress.getRowsSkipped()).isEqualTo(10L);
+        assertThat(importCheckpointCrudService.count()).isEqualTo(0L);
+    }
+
+    @Test
+    public void checkpointOfOtherSourceIgnored() throws Exception {
+        // test that the same content uploaded under other name is loaded from its first line
+
+        File file = writeCsvFile(generateCsvLines());
+        ImportCheckpoint checkpoint = new ImportCheckpoint(FileHash.sha256(file.toPath()), "generated.csv");
+        checkpoint.setLinesCommitted(10);
+        importCheckpointCrudService.save(checkpoint);
+        ImportProgress progress = new ImportProgress();
+
+        uploadCustomersService.uploadCustomersFromFileInChunks(file.toPath(), "other.csv", progress, CHUNK_SIZE);
+
+        assertThat(customerCrudService.count()).isEqualTo((long) GENERATED_LINES);
+        assertThat(progress.getRowsSkipped()).isEqualTo(0L);
+        assertThat(importCheckpointCrudService.findOne(checkpoint.getFileHash(), "generated.csv")).isNotNull();
+    }
+
+    @Test
+    public void checkpointsRemovedWithCustomers() throws Exception {
+        // test that file is uploaded again from its first line after all customers of failed upload were deleted
+
+        List<String> lines = generateCsvLines();
+        lines.set(12, "\"Benetar Pat\",Driehoog 3zwart,2340 CC,06-28938945,54,04/09/1964");
+        File file = writeCsvFile(lines);
+        uploadFailingFile(file);
+
+        customerCrudService.deleteAll();
+        assertThat(importCheckpointCrudService.count()).isEqualTo(0L);
+
+        // the same chunks before incorrect line are committed again
+        ImportProgress progress = uploadFailingFile(file);
+        assertThat(customerCrudService.count()).isEqualTo(10L);
+        assertThat(progress.getRowsSkipped()).isEqualTo(0L);
+    }
+
+    @Test
+    public void cacheClearedByCommittedChunks() throws Exception {
+        // test that customers cached before upload are loaded again, although a later chunk of upload failed
+
+        Address address = addressCrudService.save(new Address("Voorstraat 32", "3122gg"));
+        long customerId = customerCrudService.save(
+                new Customer("John", "Johnson", address, "020 3849381", 1000000L, Date.valueOf("1987-01-01"), "test"))
+                .getId();
+        Customer customer = customerCrudService.findOne(customerId);
+
+        List<String> lines = generateCsvLines();
+        lines.set(12, "\"Benetar Pat\",Driehoog 3zwart,2340 CC,06-28938945,54,04/09/1964");
+        uploadFailingFile(writeCsvFile(lines));
+
+        assertThat(customerCrudService.findOne(customerId)).isNotSameAs(customer);
+    }
+
+    private ImportProgress uploadFailingFile(File file) throws Exception {
+        ImportProgress progress = new ImportProgress();
+        try {
+            uploadCustomersService.uploadCustomersFromFileInChunks(file.toPath(), "generated.csv", progress,
+                                                                   CHUNK_SIZE);
+            fail("incorrect line accepted");
+        } catch (ApplicationException ae) {
+            assertThat(importCheckpointCrudService.count()).isEqualTo(1L);
+        }
+        return progress;
+    }
+
+    private static List<String> generateCsvLines() {
+        List<String> lines = new ArrayList<>(GENERATED_LINES);
+        for (int i = 0; i < GENERATED_LINES; i++) {
+            lines.add("\"Last" + i + ", First" + i + "\",Street " + (i % 3) + ",1000 AA,020 3849381," + i +
+                              ",01/01/1987");
+        }
+        return lines;
+    }
+
+    private File writeCsvFile(List<String> lines) throws Exception {
+        File file = folder.newFile("generated.csv");
+        String content = "Name,Address,Postcode,Phone,Credit Limit,Birthday\n" + String.join("\n", lines);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.ISO_8859_1));
+        return file;
+    }
+}
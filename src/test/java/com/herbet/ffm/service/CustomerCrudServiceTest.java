@@ -0,0 +1,142 @@
+package com.herbet.ffm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.herbet.ffm.Application;
+import com.herbet.ffm.entity.Address;
+import com.herbet.ffm.entity.Customer;
+import com.herbet.ffm.repository.AddressRepository;
+import com.herbet.ffm.repository.CustomerRepository;
+import org.hibernate.Hibernate;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {AddressCrudService.class, CustomerCrudService.class, AddressRepository.class, CustomerRepository.class, Application.class})
+@Transactional
+public class CustomerCrudServiceTest {
+
+    private static final int CUSTOMERS = 25;
+
+    private static final int PAGE_SIZE = 10;
+
+    @Autowired
+    private CustomerCrudService customerCrudService;
+
+    @Autowired
+    private AddressCrudService addressCrudService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // ids of saved customers in ascending order
+    private List<Long> ids = new ArrayList<>();
+
+    @Before
+    public void saveCustomers() {
+        // deleting all objects from db2 before running test
+        customerCrudService.deleteAll();
+        addressCrudService.deleteAll();
+
+        Address address = addressCrudService.save(new Address("Voorstraat 32", "3122gg"));
+        for (int i = 0; i < CUSTOMERS; i++) {
+            Customer customer = customerCrudService.save(
+                    new Customer("John" + i, "Johnson", address, "020 3849381", 1000000L, Date.valueOf("1987-01-01"),
+                                 "test"));
+            ids.add(customer.getId());
+        }
+    }
+
+    @Test
+    public void pagesFollowingId() {
+        // test that pages following last id of previous page cover all customers in order of ids
+
+        CustomerPage first = customerCrudService.findPageAfter(0, PAGE_SIZE);
+        assertThat(first.getCustomers()).extracting("id").containsExactlyElementsOf(ids.subList(0, 10));
+        assertThat(first.isHasPrevious()).isFalse();
+        assertThat(first.isHasNext()).isTrue();
+
+        CustomerPage second = customerCrudService.findPageAfter(first.getLastId(), PAGE_SIZE);
+        assertThat(second.getCustomers()).extracting("id").containsExactlyElementsOf(ids.subList(10, 20));
+        assertThat(second.isHasPrevious()).isTrue();
+        assertThat(second.isHasNext()).isTrue();
+
+        CustomerPage last = customerCrudService.findPageAfter(second.getLastId(), PAGE_SIZE);
+        assertThat(last.getCustomers()).extracting("id").containsExactlyElementsOf(ids.subList(20, 25));
+        assertThat(last.isHasPrevious()).isTrue();
+        assertThat(last.isHasNext()).isFalse();
+    }
+
+    @Test
+    public void pagesPrecedingId() {
+        // test that previous pages are found by first id of next page and the first page is always full
+
+        CustomerPage second = customerCrudService.findPageBefore(ids.get(20), PAGE_SIZE);
+        assertThat(second.getCustomers()).extracting("id").containsExactlyElementsOf(ids.subList(10, 20));
+        assertThat(second.isHasPrevious()).isTrue();
+        assertThat(second.isHasNext()).isTrue();
+
+        CustomerPage first = customerCrudService.findPageBefore(ids.get(5), PAGE_SIZE);
+        assertThat(first.getCustomers()).extracting("id").containsExactlyElementsOf(ids.subList(0, 10));
+        assertThat(first.isHasPrevious()).isFalse();
+    }
+
+    @Test
+    public void viewsWithAddress() {
+        // test that views on page carry fields of customer and its address
+
+        CustomerPage page = customerCrudService.findPageAfter(0, PAGE_SIZE);
+
+        assertThat(page.getCustomers().get(3).getFirstName()).isEqualTo("John3");
+        assertThat(page.getCustomers().get(3).getStreet()).isEqualTo("Voorstraat 32");
+        assertThat(page.getCustomers().get(3).getPostcode()).isEqualTo("3122gg");
+        assertThat(page.getCustomers().get(3).getCreditLimitCents()).isEqualTo(1000000L);
+    }
+
+    @Test
+    public void customerFoundWithAddress() {
+        // test that single customer is loaded together with its lazy address
+
+        entityManager.flush();
+        entityManager.clear();
+
+        Customer customer = customerCrudService.findOne(ids.get(0));
+
+        assertThat(Hibernate.isInitialized(customer.getAddress())).isTrue();
+        assertThat(customer.getAddress().getStreet()).isEqualTo("Voorstraat 32");
+    }
+
+    @Test
+    public void addressPagesFollowingId() {
+        // test that pages of addresses following last id of previous page cover all addresses
+
+        for (int i = 0; i < CUSTOMERS; i++) {
+            addressCrudService.save(new Address("Driehoog " + i, "2340 CC"));
+        }
+
+        List<Address> addresses = new ArrayList<>();
+        AddressPage page = addressCrudService.findPageAfter(0, PAGE_SIZE);
+        addresses.addAll(page.getAddresses());
+        while (page.isHasNext()) {
+            page = addressCrudService.findPageAfter(page.getLastId(), PAGE_SIZE);
+            assertThat(page.getAddresses().size()).isLessThanOrEqualTo(PAGE_SIZE);
+            addresses.addAll(page.getAddresses());
+        }
+
+        // address of customers saved before test and addresses saved by test
+        assertThat(addresses).hasSize(CUSTOMERS + 1);
+        assertThat(addresses.get(CUSTOMERS).getStreet()).isEqualTo("Driehoog " + (CUSTOMERS - 1));
+    }
+}
@@ -0,0 +1,129 @@
+package com.herbet.ffm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.herbet.ffm.Application;
+import com.herbet.ffm.repository.AddressRepository;
+import com.herbet.ffm.repository.CustomerRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {CustomerExportService.class, UploadCustomersService.class, AddressCrudService.class, CustomerCrudService.class, AddressRepository.class, CustomerRepository.class, Application.class})
+@Transactional
+public class CustomerExportServiceTest {
+
+    // path to dir with testfiles used by this testSuite
+    private static final String TEST_DATA_DIR = "./src/test/resources/testfiles/";
+
+    private static final Charset CP1252 = Charset.forName("Cp1252");
+
+    @Autowired
+    private CustomerExportService customerExportService;
+
+    @Autowired
+    private UploadCustomersService uploadCustomersService;
+
+    @Autowired
+    private CustomerCrudService customerCrudService;
+
+    @Autowired
+    private AddressCrudService addressCrudService;
+
+    @Before
+    public void clearRepositories() {
+        // deleting all objects from db2 before running test
+        customerCrudService.deleteAll();
+        addressCrudService.deleteAll();
+    }
+
+    @Test
+    public void csvExportedAsUploaded() throws Exception {
+        // test that exported csv file has the same lines as uploaded csv file
+
+        List<String> uploaded = upload("Workbook2.csv");
+
+        StringWriter writer = new StringWriter();
+        long customers = customerExportService.exportCsv(writer);
+
+        assertThat(customers).isEqualTo(7L);
+        assertThat(Arrays.asList(writer.toString().split("\n"))).isEqualTo(uploaded);
+    }
+
+    @Test
+    public void prnExportedAsUploaded() throws Exception {
+        // test that exported prn file has the same lines as uploaded prn file, credit limit is always written in cents
+
+        List<String> uploaded = new ArrayList<>(upload("Workbook2.prn"));
+        // uploaded file has credit limit 54 written without cents
+        uploaded.set(4, uploaded.get(4).replace("  54 ", "5400 "));
+
+        StringWriter writer = new StringWriter();
+        long customers = customerExportService.exportPrn(writer);
+
+        assertThat(customers).isEqualTo(7L);
+        assertThat(Arrays.asList(writer.toString().split("\n"))).isEqualTo(uploaded);
+    }
+
+    @Test
+    public void smallCreditLimitsExportedToPrn() throws Exception {
+        // test that credit limits below one unit are exported to prn with cents in last 2 of at least 3 digits
+
+        String content = "Name,Address,Postcode,Phone,Credit Limit,Birthday\n" +
+                "\"Johnson, John\",Voorstraat 32,3122gg,020 3849381,0.05,01/01/1987\n" +
+                "\"Johnson, Jane\",Voorstraat 32,3122gg,020 3849381,-0.5,01/01/1987";
+        uploadCustomersService.uploadCustomersFromFile(
+                new MockMultipartFile("small.csv", "small.csv", "text/*", content.getBytes(CP1252)));
+
+        StringWriter writer = new StringWriter();
+        customerExportService.exportPrn(writer);
+        String[] lines = writer.toString().split("\n");
+
+        assertThat(lines[1].substring(61, 74)).isEqualTo("         005 ");
+        assertThat(lines[2].substring(61, 74)).isEqualTo("         -50 ");
+    }
+
+    @Test
+    public void jsonArrayOfAllCustomers() throws Exception {
+        // test that all customers are written as JSON array of views with address fields
+
+        upload("Workbook2.csv");
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+            assertThat(customerExportService.exportJson(generator)).isEqualTo(7L);
+        }
+
+        JsonNode customers = objectMapper.readTree(output.toByteArray());
+        assertThat(customers.isArray()).isTrue();
+        assertThat(customers.size()).isEqualTo(7);
+        assertThat(customers.get(0).get("lastName").asText()).isEqualTo("Johnson");
+        assertThat(customers.get(0).get("street").asText()).isEqualTo("Voorstraat 32");
+        assertThat(customers.get(0).get("creditLimitCents").asLong()).isEqualTo(1000000L);
+    }
+
+    private List<String> upload(String fileName) throws Exception {
+        byte[] content = Files.readAllBytes(Paths.get(TEST_DATA_DIR + fileName));
+        uploadCustomersService.uploadCustomersFromFile(new MockMultipartFile(fileName, fileName, "text/*", content));
+        return Arrays.asList(new String(content, CP1252).split("\r?\n"));
+    }
+}
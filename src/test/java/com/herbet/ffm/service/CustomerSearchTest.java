@@ -0,0 +1,113 @@
+package com.herbet.ffm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.herbet.ffm.Application;
+import com.herbet.ffm.dto.CustomerSearch;
+import com.herbet.ffm.dto.CustomerView;
+import com.herbet.ffm.entity.Address;
+import com.herbet.ffm.entity.Customer;
+import com.herbet.ffm.repository.AddressRepository;
+import com.herbet.ffm.repository.CustomerRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {AddressCrudService.class, CustomerCrudService.class, AddressRepository.class,
+                           CustomerRepository.class, Application.class})
+@Transactional
+public class CustomerSearchTest {
+
+    @Autowired
+    private CustomerCrudService customerCrudService;
+
+    @Autowired
+    private AddressCrudService addressCrudService;
+
+    @Before
+    public void saveCustomers() {
+        customerCrudService.deleteAll();
+        addressCrudService.deleteAll();
+
+        Address voorstraat = addressCrudService.save(new Address("Voorstraat 32", "3122gg"));
+        Address driehoog = addressCrudService.save(new Address("Driehoog 3zwart", "2340 CC"));
+        save("John", "Johnson", voorstraat, 1000000L, "1987-01-01");
+        save("Pat", "Benetar", driehoog, 5400L, "1964-09-04");
+        save("Paul", "Anderson", driehoog, 10909300L, "1965-12-03");
+        save("Anna", "Johansson", voorstraat, 5400L, "1990-05-20");
+        save("Mark", "Jo%hn", voorstraat, 100L, "1970-01-01");
+    }
+
+    @Test
+    public void allCustomersSortedByLastName() {
+        // test that search without criteria finds all customers sorted by last name
+
+        assertThat(lastNames(customerCrudService.search(new CustomerSearch(), 10)))
+                .containsExactly("Anderson", "Benetar", "Jo%hn", "Johansson", "Johnson");
+    }
+
+    @Test
+    public void lastNamePrefixAndPostcode() {
+        // test that last name is matched by prefix, with wildcards taken literally, and postcode is matched exactly
+
+        CustomerSearch search = new CustomerSearch();
+        search.setLastName("Joh");
+        assertThat(lastNames(customerCrudService.search(search, 10))).containsExactly("Johansson", "Johnson");
+
+        search.setLastName("Jo%");
+        assertThat(lastNames(customerCrudService.search(search, 10))).containsExactly("Jo%hn");
+
+        search.setLastName(null);
+        search.setPostcode("2340 CC");
+        assertThat(lastNames(customerCrudService.search(search, 10))).containsExactly("Anderson", "Benetar");
+    }
+
+    @Test
+    public void rangesIncludeBounds() {
+        // test that birthday and credit limit ranges include their bounds
+
+        CustomerSearch search = new CustomerSearch();
+        search.setBirthdayFrom(LocalDate.of(1965, 12, 3));
+        search.setBirthdayTo(LocalDate.of(1987, 1, 1));
+        assertThat(lastNames(customerCrudService.search(search, 10))).containsExactly("Anderson", "Jo%hn", "Johnson");
+
+        search = new CustomerSearch();
+        search.setCreditLimitFrom(new BigDecimal("54"));
+        search.setCreditLimitTo(new BigDecimal("10000.00"));
+        assertThat(lastNames(customerCrudService.search(search, 10)))
+                .containsExactly("Benetar", "Johansson", "Johnson");
+    }
+
+    @Test
+    public void sortedDescendingAndLimited() {
+        // test that customers are sorted by chosen column in both directions and no more than limit are found
+
+        CustomerSearch search = new CustomerSearch();
+        search.setSort(CustomerSearch.Sort.CREDIT_LIMIT);
+        search.setDescending(true);
+        assertThat(lastNames(customerCrudService.search(search, 2))).containsExactly("Anderson", "Johnson");
+
+        search.setDescending(false);
+        assertThat(lastNames(customerCrudService.search(search, 3))).containsExactly("Jo%hn", "Benetar", "Johansson");
+    }
+
+    private void save(String firstName, String lastName, Address address, long creditLimitCents, String birthday) {
+        customerCrudService.save(new Customer(firstName, lastName, address, "020 3849381", creditLimitCents,
+                                              Date.valueOf(birthday), "test"));
+    }
+
+    private static List<String> lastNames(List<CustomerView> customers) {
+        return customers.stream().map(CustomerView::getLastName).collect(Collectors.toList());
+    }
+}
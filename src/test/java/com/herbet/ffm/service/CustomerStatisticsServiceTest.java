@@ -0,0 +1,188 @@
+package com.herbet.ffm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.herbet.ffm.Application;
+import com.herbet.ffm.dto.CreditLimitStatistics;
+import com.herbet.ffm.entity.Customer;
+import com.herbet.ffm.exception.ApplicationException;
+import com.herbet.ffm.repository.AddressRepository;
+import com.herbet.ffm.repository.CustomerRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// not transactional, as statistics are changed only by committed uploads
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {UploadCustomersService.class, CustomerStatisticsService.class, AddressCrudService.class, CustomerCrudService.class, AddressRepository.class, CustomerRepository.class, Application.class})
+@TestPropertySource(properties = {"import.upsert.key=lastName,firstName,birthday", "import.batch.size=2"})
+public class CustomerStatisticsServiceTest {
+
+    private static final String HEADER = "Name,Address,Postcode,Phone,Credit Limit,Birthday";
+
+    private static final Charset CP1252 = Charset.forName("Cp1252");
+
+    @Autowired
+    private CustomerStatisticsService customerStatisticsService;
+
+    @Autowired
+    private UploadCustomersService uploadCustomersService;
+
+    @Autowired
+    private CustomerCrudService customerCrudService;
+
+    @Autowired
+    private AddressCrudService addressCrudService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Before
+    @After
+    public void clearRepositories() {
+        // deleting all objects from db2 before and after running test
+        customerCrudService.deleteAll();
+        addressCrudService.deleteAll();
+    }
+
+    @Test
+    public void uploadedCustomersAggregated() throws Exception {
+        // test that statistics of uploaded customers are the same as aggregated by query
+
+        uploadCustomersService.uploadCustomersFromFile(testFile("Workbook2.csv"));
+        uploadCustomersService.uploadCustomersFromFile(testFile("customer1.prn"));
+
+        assertThat(customerStatisticsService.findBySource()).hasSize(2);
+        assertAggregatedByQuery();
+    }
+
+    @Test
+    public void updatedCustomersMovedBetweenGroups() throws Exception {
+        // test that customers updated by upsert are removed from their old groups, also when they had min or max limit
+
+        uploadCustomersService.uploadCustomersFromFile(csvFile("first.csv",
+                "\"Johnson, John\",Voorstraat 32,3122gg,020 3849381,10000,01/01/1987",
+                "\"Anderson, Paul\",Dorpsplein 3A,3122gg,030 3458986,109093,03/12/1965",
+                "\"Wicket, Steve\",Mendelssohnstraat 54d,3423 ba,0313-398475,934,03/06/1964"));
+        uploadCustomersService.uploadCustomersFromFile(csvFile("second.csv",
+                "\"Anderson, Paul\",Dorpsplein 3A,3122gg,030 3458986,5000,03/12/1965",
+                "\"Wicket, Steve\",Driehoog 3zwart,2340 CC,0313-398475,934,03/06/1964"));
+
+        assertThat(statistics(customerStatisticsService.findByPostcode()))
+                .containsExactly("2340 CC|1|934.00|934.00|934.00|934.00", "3122gg|2|15000.00|7500.00|5000.00|10000.00");
+        assertThat(statistics(customerStatisticsService.findBySource()))
+                .containsExactly("first.csv|1|10000.00|10000.00|10000.00|10000.00",
+                                 "second.csv|2|5934.00|2967.00|934.00|5000.00");
+        assertAggregatedByQuery();
+    }
+
+    @Test
+    public void rolledBackUploadNotCounted() throws Exception {
+        // test that customers saved by upload which was rolled back are not counted
+
+        uploadCustomersService.uploadCustomersFromFile(testFile("Workbook2.csv"));
+        List<String> bySource = statistics(customerStatisticsService.findBySource());
+
+        assertThatThrownBy(() -> uploadCustomersService.uploadCustomersFromFile(csvFile("incorrect.csv",
+                "\"Johnson, John\",Voorstraat 32,3122gg,020 3849381,10000,01/01/1987",
+                "\"Anderson, Paul\",Dorpsplein 3A,4532 AA,030 3458986,109093,03/12/1965",
+                "\"Wicket, Steve\",Mendelssohnstraat 54d,3423 ba,0313-398475,93j4,03/06/1964")))
+                .isInstanceOf(ApplicationException.class);
+
+        assertThat(statistics(customerStatisticsService.findBySource())).isEqualTo(bySource);
+        assertAggregatedByQuery();
+    }
+
+    @Test
+    public void managedCustomerUpdated() throws Exception {
+        // test that customer changed while managed in transaction is removed from groups of its stored fields
+
+        uploadCustomersService.uploadCustomersFromFile(csvFile("first.csv",
+                "\"Johnson, John\",Voorstraat 32,3122gg,020 3849381,10000,01/01/1987",
+                "\"Anderson, Paul\",Dorpsplein 3A,4532 AA,030 3458986,5000,03/12/1965"));
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            List<Customer> customers = new ArrayList<>();
+            customerRepository.findAll().forEach(customers::add);
+            Customer johnson = customers.stream().filter(c -> c.getLastName().equals("Johnson")).findFirst().get();
+            Customer anderson = customers.stream().filter(c -> c.getLastName().equals("Anderson")).findFirst().get();
+            johnson.setCreditLimitCents(2000000L);
+            johnson.setAddress(anderson.getAddress());
+            return customerCrudService.save(johnson);
+        });
+
+        assertThat(statistics(customerStatisticsService.findByPostcode()))
+                .containsExactly("4532 AA|2|25000.00|12500.00|5000.00|20000.00");
+        assertThat(statistics(customerStatisticsService.findBySource()))
+                .containsExactly("first.csv|2|25000.00|12500.00|5000.00|20000.00");
+        assertAggregatedByQuery();
+    }
+
+    @Test
+    public void deletedCustomersNotCounted() throws Exception {
+        // test that statistics are empty after all customers are deleted
+
+        uploadCustomersService.uploadCustomersFromFile(testFile("Workbook2.csv"));
+        customerCrudService.deleteAll();
+
+        assertThat(customerStatisticsService.findBySource()).isEmpty();
+        assertThat(customerStatisticsService.findByPostcode()).isEmpty();
+    }
+
+    private void assertAggregatedByQuery() {
+        assertThat(statistics(customerStatisticsService.findBySource()))
+                .isEqualTo(rows(customerRepository.aggregateCreditLimitsBySource()));
+        assertThat(statistics(customerStatisticsService.findByPostcode()))
+                .isEqualTo(rows(customerRepository.aggregateCreditLimitsByPostcode()));
+    }
+
+    private static List<String> statistics(List<CreditLimitStatistics> statistics) {
+        return statistics.stream()
+                .map(s -> s.getGroup() + "|" + s.getCustomers() + "|" + s.getTotalCreditLimit() + "|" +
+                        s.getAverageCreditLimit() + "|" + s.getMinCreditLimit() + "|" + s.getMaxCreditLimit())
+                .collect(Collectors.toList());
+    }
+
+    // the same format as statistics, sorted by group
+    private static List<String> rows(List<Object[]> rows) {
+        return statistics(rows.stream()
+                                  .map(row -> new CreditLimitStatistics((String) row[0], (Long) row[1], (Long) row[2],
+                                                                        (Long) row[3], (Long) row[4]))
+                                  .sorted((s1, s2) -> s1.getGroup().compareTo(s2.getGroup()))
+                                  .collect(Collectors.toList()));
+    }
+
+    private static MultipartFile testFile(String fileName) throws IOException {
+        try (InputStream input = new ClassPathResource("testfiles/" + fileName).getInputStream()) {
+            return new MockMultipartFile(fileName, fileName, "text/*", input);
+        }
+    }
+
+    private static MultipartFile csvFile(String fileName, String... lines) {
+        List<String> content = new ArrayList<>(Arrays.asList(lines));
+        content.add(0, HEADER);
+        return new MockMultipartFile(fileName, fileName, "text/*", String.join("\n", content).getBytes(CP1252));
+    }
+}
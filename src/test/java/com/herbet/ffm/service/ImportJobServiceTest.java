@@ -0,0 +1,197 @@
+package com.herbet.ffm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.herbet.ffm.Application;
+import com.herbet.ffm.entity.Customer;
+import com.herbet.ffm.exception.ApplicationException;
+import com.herbet.ffm.repository.AddressRepository;
+import com.herbet.ffm.repository.CustomerRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+// not transactional, jobs are run and committed by threads of job service
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {ImportJobService.class, UploadCustomersService.class, AddressCrudService.class, CustomerCrudService.class, AddressRepository.class, CustomerRepository.class, Application.class})
+// small queue of batch pool, so some files of batch are uploaded by thread running the batch
+@TestPropertySource(properties = "import.batch.queue.size=2")
+public class ImportJobServiceTest {
+
+    // path to dir with testfiles used by this testSuite
+    private static final String TEST_DATA_DIR = "./src/test/resources/testfiles/";
+
+    private static final String CONTENT_TYPE = "text/*";
+
+    @Autowired
+    private ImportJobService importJobService;
+
+    @Autowired
+    private CustomerCrudService customerCrudService;
+
+    @Autowired
+    private AddressCrudService addressCrudService;
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Before
+    @After
+    public void clearRepositories() {
+        // deleting all objects from db2 before and after running test, as data of jobs is committed
+        customerCrudService.deleteAll();
+        addressCrudService.deleteAll();
+    }
+
+    @Test
+    public void fileUploadedInBackground() throws Exception {
+        // test that job uploads all customers of file and reports its progress
+
+        ImportJob job = importJobService.submit(testFile("Workbook2.prn"));
+
+        assertThat(importJobService.findJob(job.getId())).isSameAs(job);
+        waitUntilFinished(job);
+
+        assertThat(job.getStatus()).isEqualTo(ImportJob.Status.COMPLETED);
+        assertThat(job.getRowsParsed()).isEqualTo(7L);
+        assertThat(job.getRowsPersisted()).isEqualTo(7L);
+        assertThat(job.getError()).isNull();
+        assertThat(customerCrudService.count()).isEqualTo(7L);
+    }
+
+    @Test
+    public void failedUploadReported() throws Exception {
+        // test that job fails with message of error and nothing is loaded from incorrect file
+
+        ImportJob job = importJobService.submit(testFile("wrongLimit.csv"));
+        waitUntilFinished(job);
+
+        assertThat(job.getStatus()).isEqualTo(ImportJob.Status.FAILED);
+        assertThat(job.getError()).startsWith("Column Credit Limit has incorrect format");
+        assertThat(customerCrudService.count()).isEqualTo(0L);
+    }
+
+    @Test
+    public void addressesOfFailedUploadRolledBack() throws Exception {
+        // test that addresses saved before incorrect line is reached are rolled back together with customers
+
+        String content = "Name,Address,Postcode,Phone,Credit Limit,Birthday\n" +
+                "\"Johnson, John\",Voorstraat 32,3122gg,020 3849381,10000,01/01/1987\n" +
+                "\"Anderson, Paul\",Dorpsplein 3A,4532 AA,030 3458986,93j4,03/12/1965";
+        ImportJob job = importJobService.submit(new MockMultipartFile("incorrect.csv", "incorrect.csv", CONTENT_TYPE,
+                                                                      content.getBytes("Cp1252")));
+        waitUntilFinished(job);
+
+        assertThat(job.getStatus()).isEqualTo(ImportJob.Status.FAILED);
+        assertThat(customerCrudService.count()).isEqualTo(0L);
+        assertThat(addressCrudService.count()).isEqualTo(0L);
+    }
+
+    @Test
+    public void identicalFileSkipped() throws Exception {
+        // test that job of file with the same content as already uploaded file counts all its rows as skipped
+
+        waitUntilFinished(importJobService.submit(testFile("Workbook2.prn")));
+        ImportJob job = importJobService.submit(testFile("Workbook2.prn"));
+        waitUntilFinished(job);
+
+        assertThat(job.getStatus()).isEqualTo(ImportJob.Status.COMPLETED);
+        assertThat(job.getRowsSkipped()).isEqualTo(7L);
+        assertThat(job.getRowsPersisted()).isEqualTo(0L);
+        assertThat(customerCrudService.count()).isEqualTo(7L);
+    }
+
+    @Test
+    public void wrongFileNameRejected() throws Exception {
+        // test that file with unsupported extension is rejected before job is created
+
+        thrown.expect(ApplicationException.class);
+        thrown.expectMessage("Uploaded file extention: '.txt' is not supported.");
+        importJobService.submit(new MockMultipartFile("customers.txt", "customers.txt", CONTENT_TYPE, new byte[]{1}));
+    }
+
+    @Test
+    public void archiveEntriesUploadedConcurrently() throws Exception {
+        // test that every entry of archive is uploaded by its own job and shared addresses are saved only once
+
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            for (int i = 0; i < 8; i++) {
+                addEntry(zip, "partner/copy" + i + ".csv", "Workbook2.csv");
+            }
+            addEntry(zip, "partner/wrongLimit.csv", "wrongLimit.csv");
+            zip.putNextEntry(new ZipEntry("partner/notes.txt"));
+            zip.write(new byte[]{1});
+        }
+        MultipartFile prnFile = testFile("Workbook2.prn");
+        MultipartFile zipFile = new MockMultipartFile("daily.zip", "daily.zip", "application/zip",
+                                                      archive.toByteArray());
+
+        ImportBatch batch = importJobService.submitBatch(Arrays.asList(prnFile, zipFile));
+
+        assertThat(importJobService.findBatch(batch.getId())).isSameAs(batch);
+        assertThat(batch.getJobs()).hasSize(11);
+        for (ImportJob job : batch.getJobs()) {
+            waitUntilFinished(job);
+        }
+
+        assertThat(batch.getJobs().get(0).getFileName()).isEqualTo("Workbook2.prn");
+        assertThat(batch.getJobs().get(1).getFileName()).isEqualTo("partner/copy0.csv");
+        assertThat(batch.getJobs().get(9).getError()).startsWith("Column Credit Limit has incorrect format");
+        assertThat(batch.getJobs().get(10).getError()).isEqualTo("Uploaded file extention: '.txt' is not supported.");
+        assertThat(batch.getCompletedFiles()).isEqualTo(9L);
+        assertThat(batch.getFailedFiles()).isEqualTo(2L);
+
+        assertThat(customerCrudService.count()).isEqualTo(63L);
+        assertThat(addressCrudService.count()).isEqualTo(7L);
+        for (Customer customer : customerCrudService.findAll()) {
+            assertThat(customer.getSource()).matches("Workbook2\\.prn|partner/copy[0-7]\\.csv");
+        }
+    }
+
+    @Test
+    public void incorrectArchiveRejected() throws Exception {
+        // test that file which is not ZIP archive is rejected before batch is created
+
+        thrown.expect(ApplicationException.class);
+        thrown.expectMessage("Uploaded file 'daily.zip' is not correct ZIP archive.");
+        importJobService.submitBatch(
+                Arrays.asList(new MockMultipartFile("daily.zip", "daily.zip", "application/zip", new byte[]{1})));
+    }
+
+    private static void addEntry(ZipOutputStream zip, String entryName, String fileName) throws Exception {
+        zip.putNextEntry(new ZipEntry(entryName));
+        zip.write(Files.readAllBytes(Paths.get(TEST_DATA_DIR + fileName)));
+        zip.closeEntry();
+    }
+
+    private static MultipartFile testFile(String fileName) throws Exception {
+        return new MockMultipartFile(fileName, fileName, CONTENT_TYPE,
+                                     new FileInputStream(new File(TEST_DATA_DIR + fileName)));
+    }
+
+    private static void waitUntilFinished(ImportJob job) throws InterruptedException {
+        for (int i = 0; i < 300 && !job.isFinished(); i++) {
+            Thread.sleep(100);
+        }
+        assertThat(job.isFinished()).as("job finished").isTrue();
+    }
+}
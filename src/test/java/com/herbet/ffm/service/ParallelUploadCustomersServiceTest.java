@@ -0,0 +1,120 @@
+package com.herbet.ffm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.herbet.ffm.Application;
+import com.herbet.ffm.entity.Customer;
+import com.herbet.ffm.exception.ApplicationException;
+import com.herbet.ffm.repository.AddressRepository;
+import com.herbet.ffm.repository.CustomerRepository;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {UploadCustomersService.class, AddressCrudService.class, CustomerCrudService.class, AddressRepository.class, CustomerRepository.class, Application.class})
+@TestPropertySource(properties = {"import.parse.parallelism=4", "import.parse.chunk.size=1000"})
+@Transactional
+public class ParallelUploadCustomersServiceTest {
+
+    // path to dir with testfiles used by this testSuite
+    private static final String TEST_DATA_DIR = "./src/test/resources/testfiles/";
+
+    private static final String CONTENT_TYPE = "text/*";
+
+    // number of lines in generated file, big enough to be split into several chunks and tasks
+    private static final int GENERATED_LINES = 2500;
+
+    @Autowired
+    private UploadCustomersService uploadCustomersService;
+
+    @Autowired
+    private CustomerCrudService customerCrudService;
+
+    @Autowired
+    private AddressCrudService addressCrudService;
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Before
+    public void clearRepositories() {
+        // deleting all objects from db2 before running test
+        customerCrudService.deleteAll();
+        addressCrudService.deleteAll();
+    }
+
+    @Test
+    public void csvAndPrnSuccessfullyLoaded() throws Exception {
+        // test if csv and prn files are successfully loaded into db when lines are parsed in parallel
+
+        for (String fileName : new String[]{"Workbook2.csv", "Workbook2.prn"}) {
+            MultipartFile multipartFile = new MockMultipartFile(fileName, fileName, CONTENT_TYPE,
+                                                                new FileInputStream(
+                                                                        new File(TEST_DATA_DIR + fileName)));
+            uploadCustomersService.uploadCustomersFromFile(multipartFile);
+        }
+
+        // make sure all 14 customers and only 7 addresses have been loaded
+        assertThat(customerCrudService.count()).isEqualTo(14L);
+        assertThat(addressCrudService.count()).isEqualTo(7L);
+    }
+
+    @Test
+    public void customersPersistedInOrderOfLines() throws Exception {
+        // test that customers parsed in parallel are persisted in order of lines in file
+
+        List<String> lines = generateCsvLines();
+        uploadCustomersService.uploadCustomersFromFile(toCsvFile(lines));
+
+        List<Customer> customers = new ArrayList<>();
+        customerCrudService.findAll().forEach(customers::add);
+        customers.sort((c1, c2) -> Long.compare(c1.getId(), c2.getId()));
+
+        assertThat(customers).hasSize(GENERATED_LINES);
+        for (int i = 0; i < GENERATED_LINES; i++) {
+            assertThat(customers.get(i).getFirstName()).isEqualTo("First" + i);
+        }
+    }
+
+    @Test
+    public void firstIncorrectLineReported() throws Exception {
+        // test that exception is thrown for the first incorrect line, even if later lines are parsed earlier
+
+        List<String> lines = generateCsvLines();
+        lines.set(1700, "\"Benetar Pat\",Driehoog 3zwart,2340 CC,06-28938945,54,04/09/1964");
+        lines.set(2400, "\"Johnson, John\",Voorstraat 32,3122gg,020 3849381,01/01/1987");
+
+        thrown.expect(ApplicationException.class);
+        thrown.expectMessage("Column Name has incorrect format (should be \"Lastname, Firstname\"): \"Benetar Pat\"");
+        uploadCustomersService.uploadCustomersFromFile(toCsvFile(lines));
+    }
+
+    private static List<String> generateCsvLines() {
+        List<String> lines = new ArrayList<>(GENERATED_LINES);
+        for (int i = 0; i < GENERATED_LINES; i++) {
+            lines.add("\"Last" + i + ", First" + i + "\",Street " + (i % 100) + ",1000 AA,020 3849381," + i +
+                              ",01/01/1987");
+        }
+        return lines;
+    }
+
+    private static MultipartFile toCsvFile(List<String> lines) {
+        String content = "Name,Address,Postcode,Phone,Credit Limit,Birthday\n" + String.join("\n", lines);
+        return new MockMultipartFile("generated.csv", "generated.csv", CONTENT_TYPE, content.getBytes());
+    }
+}
@@ -2,6 +2,7 @@ package com.herbet.ffm.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.codahale.metrics.MetricRegistry;
 import com.herbet.ffm.Application;
 import com.herbet.ffm.entity.Customer;
 import com.herbet.ffm.exception.ApplicationException;
@@ -19,9 +20,17 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest(classes = {UploadCustomersService.class, AddressCrudService.class, CustomerCrudService.class, AddressRepository.class, CustomerRepository.class, Application.class})
@@ -33,6 +42,8 @@ public class UploadCustomersServiceTest {
 
     private static final String CONTENT_TYPE = "text/*";
 
+    private static final Charset CP1252 = Charset.forName("Cp1252");
+
     @Autowired
     private UploadCustomersService uploadCustomersService;
 
@@ -42,6 +53,9 @@ public class UploadCustomersServiceTest {
     @Autowired
     private AddressCrudService addressCrudService;
 
+    @Autowired
+    private MetricRegistry metricRegistry;
+
     @Rule
     public ExpectedException thrown = ExpectedException.none();
 
@@ -107,6 +121,191 @@ public class UploadCustomersServiceTest {
         assertThat(customerCrudService.count()).isEqualTo(14L);
     }
 
+    @Test
+    public void addressesAreReusedWithinFile() throws Exception {
+        // test if address repeated in one file is saved only once and the same street with other postcode is not reused
+
+        String csvFileName = "sameAddress.csv";
+        MultipartFile csvMultipartFile = new MockMultipartFile(csvFileName, csvFileName, CONTENT_TYPE,
+                                                               new FileInputStream(
+                                                                       new File(TEST_DATA_DIR + csvFileName)));
+        uploadCustomersService.uploadCustomersFromFile(csvMultipartFile);
+
+        // make sure only 2 addresses have been saved in db for 4 customers
+        assertThat(addressCrudService.count()).isEqualTo(2L);
+        assertThat(customerCrudService.count()).isEqualTo(4L);
+    }
+
+    @Test
+    public void compressedFilesUploaded() throws Exception {
+        // test that gzip compressed files are inflated while they are uploaded, also if only content is compressed
+
+        uploadCustomersService.uploadCustomersFromFile(gzipFile("Workbook2.csv", "Workbook2.csv.gz"));
+        uploadCustomersService.uploadCustomersFromFile(gzipFile("Workbook2.prn", "Workbook2.PRN.GZ"));
+        uploadCustomersService.uploadCustomersFromFile(gzipFile("Workbook2.csv", "Workbook2.csv"));
+
+        assertThat(customerCrudService.count()).isEqualTo(21L);
+        assertThat(addressCrudService.count()).isEqualTo(7L);
+    }
+
+    @Test
+    public void identicalFileSkipped() throws Exception {
+        // test that file with the same content uploaded again from the same source is skipped
+
+        uploadCustomersService.uploadCustomersFromFile(testFile("Workbook2.csv", "Workbook2.csv"));
+        uploadCustomersService.uploadCustomersFromFile(testFile("Workbook2.csv", "Workbook2.csv"));
+
+        assertThat(customerCrudService.count()).isEqualTo(7L);
+
+        // the same content from other source is loaded
+        uploadCustomersService.uploadCustomersFromFile(testFile("Workbook2.csv", "partner.csv"));
+
+        assertThat(customerCrudService.count()).isEqualTo(14L);
+    }
+
+    @Test
+    public void onlyNewAndChangedRowsLoaded() throws Exception {
+        // test that rows already loaded from the same source are skipped and only new or changed rows are saved
+
+        List<String> lines = Files.readAllLines(Paths.get(TEST_DATA_DIR + "Workbook2.csv"), CP1252);
+        uploadCustomersService.uploadCustomersFromFile(csvFile(lines));
+
+        lines.set(1, lines.get(1).replace("10000", "20000"));
+        lines.add("\"Kowalski, Jan\",Driehoog 3zwart,2340 CC,06-28938945,54,04/09/1964");
+        uploadCustomersService.uploadCustomersFromFile(csvFile(lines));
+
+        List<Customer> customers = new ArrayList<>();
+        customerCrudService.findAll().forEach(customers::add);
+        customers.sort((c1, c2) -> Long.compare(c1.getId(), c2.getId()));
+
+        assertThat(customers).hasSize(9);
+        assertThat(customers.get(7).getCreditLimitCents()).isEqualTo(2000000L);
+        assertThat(customers.get(8).getFirstName()).isEqualTo("Jan");
+    }
+
+    @Test
+    public void changedRowInsertedNextToPreviousVersion() throws Exception {
+        // test that without natural key for upsert changed row is inserted and its previous version stays in db
+
+        List<String> lines = Files.readAllLines(Paths.get(TEST_DATA_DIR + "Workbook2.csv"), CP1252);
+        uploadCustomersService.uploadCustomersFromFile(csvFile(lines));
+
+        lines.set(1, lines.get(1).replace("10000", "20000"));
+        uploadCustomersService.uploadCustomersFromFile(csvFile(lines));
+
+        List<Long> creditLimits = new ArrayList<>();
+        for (Customer customer : customerCrudService.findAll()) {
+            if (customer.getLastName().equals("Johnson")) {
+                creditLimits.add(customer.getCreditLimitCents());
+            }
+        }
+        assertThat(creditLimits).containsOnly(1000000L, 2000000L).hasSize(2);
+        assertThat(customerCrudService.count()).isEqualTo(8L);
+    }
+
+    @Test
+    public void allIncorrectLinesReported() throws Exception {
+        // test that validation reports every incorrect line with its number and nothing is saved in db
+
+        List<String> lines = Files.readAllLines(Paths.get(TEST_DATA_DIR + "Workbook2.csv"), CP1252);
+        lines.set(3, lines.get(3).replace("03/06/1964", "31/06/1964"));
+        lines.set(4, lines.get(4).replace(",54,", ",5j4,"));
+        lines.add("\"Kowalski, Jan\",Driehoog 3zwart,2340 CC");
+
+        ValidationReport report = uploadCustomersService.validateCustomersFile(csvFile(lines));
+
+        assertThat(report.getLines()).isEqualTo(8L);
+        assertThat(report.getIncorrectLines()).isEqualTo(3L);
+        assertThat(report.getErrors()).extracting(ValidationReport.LineError::getLineNumber).containsExactly(4L, 5L, 9L);
+        assertThat(report.getErrors().get(0).getMessage()).startsWith("Column Birthday has incorrect format");
+        assertThat(report.getErrors().get(1).getMessage()).startsWith("Column Credit Limit has incorrect format");
+        assertThat(report.getErrors().get(2).getMessage()).contains("not enough fields");
+        assertThat(customerCrudService.count()).isEqualTo(0L);
+    }
+
+    @Test
+    public void validationErrorsSameAsUploadErrors() throws Exception {
+        // test that validation finds the same error as upload for every incorrect test file and no error in correct ones
+
+        String[] fileNames = {"Workbook2.csv", "Workbook2.prn", "emptyField.csv", "emptyField.prn",
+                              "incorrectNames.csv", "incorrectNames.prn", "lessColumns.csv", "noQuotations.csv",
+                              "wrongDate1.csv", "wrongDate1.prn", "wrongDate2.csv", "wrongDate2.prn", "wrongLimit.csv",
+                              "wrongLimit.prn"};
+
+        for (String fileName : fileNames) {
+            ValidationReport report = uploadCustomersService.validateCustomersFile(testFile(fileName, fileName));
+
+            String uploadError = null;
+            try {
+                uploadCustomersService.uploadCustomersFromFile(testFile(fileName, fileName));
+            } catch (ApplicationException ae) {
+                uploadError = ae.getMessage();
+            }
+
+            if (uploadError == null) {
+                assertThat(report.isValid()).as("validation of " + fileName).isTrue();
+            } else {
+                assertThat(report.getErrors().get(0).getMessage()).as("validation of " + fileName)
+                        .isEqualTo(uploadError);
+            }
+        }
+    }
+
+    @Test
+    public void stagesOfUploadMeasured() throws Exception {
+        // test that lines, address lookups and saved rows of upload are reported to metrics
+
+        long linesRead = metricRegistry.counter("import.lines.read").getCount();
+        long addressLookups = metricRegistry.timer("import.address.lookup").getCount();
+        long rowsPersisted = metricRegistry.meter("import.rows.persisted").getCount();
+        long uploads = metricRegistry.histogram("import.upload.rows.per.second").getCount();
+
+        String csvFileName = "sameAddress.csv";
+        uploadCustomersService.uploadCustomersFromFile(
+                new MockMultipartFile(csvFileName, csvFileName, CONTENT_TYPE,
+                                      new FileInputStream(new File(TEST_DATA_DIR + csvFileName))));
+
+        assertThat(metricRegistry.counter("import.lines.read").getCount() - linesRead).isEqualTo(4L);
+        assertThat(metricRegistry.timer("import.address.lookup").getCount() - addressLookups).isEqualTo(2L);
+        assertThat(metricRegistry.meter("import.rows.persisted").getCount() - rowsPersisted).isEqualTo(4L);
+        assertThat(metricRegistry.histogram("import.upload.rows.per.second").getCount() - uploads).isEqualTo(1L);
+    }
+
+    @Test
+    public void skippedLinesMeasured() throws Exception {
+        // test that lines skipped as already loaded from the same source are counted as read lines too
+
+        String content = "Name,Address,Postcode,Phone,Credit Limit,Birthday\n" +
+                "\"Johnson, John\",Voorstraat 32,3122gg,020 3849381,10000,01/01/1987\n";
+        uploadCustomersService.uploadCustomersFromFile(
+                new MockMultipartFile("customers.csv", "customers.csv", CONTENT_TYPE, content.getBytes(CP1252)));
+        long linesRead = metricRegistry.counter("import.lines.read").getCount();
+
+        content += "\"Anderson, Paul\",Dorpsplein 3A,4532 AA,030 3458986,109093,03/12/1965";
+        uploadCustomersService.uploadCustomersFromFile(
+                new MockMultipartFile("customers.csv", "customers.csv", CONTENT_TYPE, content.getBytes(CP1252)));
+
+        assertThat(metricRegistry.counter("import.lines.read").getCount() - linesRead).isEqualTo(2L);
+    }
+
+    @Test
+    public void rejectedLineCountedByReason() throws Exception {
+        // test that incorrect line is counted as rejected because of its incorrect column
+
+        long rejected = metricRegistry.counter("import.lines.rejected.credit.limit").getCount();
+
+        String csvFileName = "wrongLimit.csv";
+        try {
+            uploadCustomersService.uploadCustomersFromFile(
+                    new MockMultipartFile(csvFileName, csvFileName, CONTENT_TYPE,
+                                          new FileInputStream(new File(TEST_DATA_DIR + csvFileName))));
+        } catch (ApplicationException ae) {
+            // expected
+        }
+
+        assertThat(metricRegistry.counter("import.lines.rejected.credit.limit").getCount() - rejected).isEqualTo(1L);
+    }
+
     @Test
     public void customerFieldsSetCorrectlyCsv() throws Exception {
         // test that all fields of customer object loaded from csv file are set correctly
@@ -128,7 +327,7 @@ public class UploadCustomersServiceTest {
         assertThat(customer1.getAddress().getStreet()).isEqualTo("Dorpsplein 3A");
         assertThat(customer1.getAddress().getPostcode()).isEqualTo("4532 AA");
         assertThat(customer1.getPhone()).isEqualTo("030 3458986");
-        assertThat(customer1.getCreditLimit()).isEqualTo(109093.00);
+        assertThat(customer1.getCreditLimitCents()).isEqualTo(10909300L);
         assertThat(customer1.getBirthday()).isEqualTo(new SimpleDateFormat("yyyy-MM-dd").parse("1965-12-03"));
         assertThat(customer1.getSource()).isEqualTo(csvFileName);
 
@@ -151,7 +350,7 @@ public class UploadCustomersServiceTest {
         assertThat(customer2.getAddress().getStreet()).isEqualTo("Driehoog 3zwart");
         assertThat(customer2.getAddress().getPostcode()).isEqualTo("2340 CC");
         assertThat(customer2.getPhone()).isEqualTo("06-28938945");
-        assertThat(customer2.getCreditLimit()).isEqualTo(54.00);
+        assertThat(customer2.getCreditLimitCents()).isEqualTo(5400L);
         assertThat(customer2.getBirthday()).isEqualTo(new SimpleDateFormat("yyyy-MM-dd").parse("1964-09-04"));
         assertThat(customer2.getSource()).isEqualTo(csvFileName2);
     }
@@ -177,7 +376,7 @@ public class UploadCustomersServiceTest {
         assertThat(customer1.getAddress().getStreet()).isEqualTo("Dorpsplein 3A");
         assertThat(customer1.getAddress().getPostcode()).isEqualTo("4532 AA");
         assertThat(customer1.getPhone()).isEqualTo("030 3458986");
-        assertThat(customer1.getCreditLimit()).isEqualTo(109093.00);
+        assertThat(customer1.getCreditLimitCents()).isEqualTo(10909300L);
         assertThat(customer1.getBirthday()).isEqualTo(new SimpleDateFormat("yyyy-MM-dd").parse("1965-12-03"));
         assertThat(customer1.getSource()).isEqualTo(prnFileName);
 
@@ -200,7 +399,7 @@ public class UploadCustomersServiceTest {
         assertThat(customer2.getAddress().getStreet()).isEqualTo("Driehoog 3zwart");
         assertThat(customer2.getAddress().getPostcode()).isEqualTo("2340 CC");
         assertThat(customer2.getPhone()).isEqualTo("06-28938945");
-        assertThat(customer2.getCreditLimit()).isEqualTo(54.00);
+        assertThat(customer2.getCreditLimitCents()).isEqualTo(5400L);
         assertThat(customer2.getBirthday()).isEqualTo(new SimpleDateFormat("yyyy-MM-dd").parse("1964-09-04"));
         assertThat(customer2.getSource()).isEqualTo(prnFileName2);
     }
@@ -403,6 +602,31 @@ public class UploadCustomersServiceTest {
         uploadCustomersService.uploadCustomersFromFile(prnMultipartFile);
     }
 
+    @Test
+    public void widenedColumnsPrn() throws Exception {
+        // test that prn file with columns wider than configured is loaded using column offsets given by its header
+
+        String[] lines = {
+                String.format("%-28s%-22s%-11s%-14s%-13s%s", "Name", "Address", "Postcode", "Phone", "Credit Limit",
+                              "Birthday"),
+                String.format("%-28s%-22s%-11s%-14s%12s %s", "Vandenberghe-Jansen, Paul", "Dorpsplein 3A",
+                              "4532 AA", "030 3458986", "10909300", "19651203")};
+        MultipartFile prnMultipartFile = new MockMultipartFile("widened.prn", "widened.prn", CONTENT_TYPE,
+                                                               String.join("\n", lines).getBytes(CP1252));
+
+        assertThat(uploadCustomersService.validateCustomersFile(prnMultipartFile).isValid()).isTrue();
+        uploadCustomersService.uploadCustomersFromFile(prnMultipartFile);
+
+        Customer customer = customerCrudService.findAll().iterator().next();
+        assertThat(customer.getFirstName()).isEqualTo("Paul");
+        assertThat(customer.getLastName()).isEqualTo("Vandenberghe-Jansen");
+        assertThat(customer.getAddress().getStreet()).isEqualTo("Dorpsplein 3A");
+        assertThat(customer.getAddress().getPostcode()).isEqualTo("4532 AA");
+        assertThat(customer.getPhone()).isEqualTo("030 3458986");
+        assertThat(customer.getCreditLimitCents()).isEqualTo(10909300L);
+        assertThat(customer.getBirthday()).isEqualTo(new SimpleDateFormat("yyyy-MM-dd").parse("1965-12-03"));
+    }
+
     @Test
     public void wrongDateFormatPrn() throws Exception {
         // test that exception is thrown if column [Birthday] has wrong format in prn file
@@ -417,4 +641,22 @@ public class UploadCustomersServiceTest {
         thrown.expectMessage("Column Birthday has incorrect format");
         uploadCustomersService.uploadCustomersFromFile(prnMultipartFile2);
     }
-}
\ No newline at end of file
+
+    private static MultipartFile gzipFile(String testFileName, String fileName) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (OutputStream compressed = new GZIPOutputStream(output)) {
+            compressed.write(Files.readAllBytes(Paths.get(TEST_DATA_DIR + testFileName)));
+        }
+        return new MockMultipartFile(fileName, fileName, "application/gzip", output.toByteArray());
+    }
+
+    private static MultipartFile testFile(String testFileName, String fileName) throws Exception {
+        return new MockMultipartFile(fileName, fileName, CONTENT_TYPE,
+                                     Files.readAllBytes(Paths.get(TEST_DATA_DIR + testFileName)));
+    }
+
+    private static MultipartFile csvFile(List<String> lines) {
+        byte[] content = String.join("\n", lines).getBytes(CP1252);
+        return new MockMultipartFile("changed.csv", "changed.csv", CONTENT_TYPE, content);
+    }
+}
@@ -0,0 +1,128 @@
+package com.herbet.ffm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.herbet.ffm.Application;
+import com.herbet.ffm.entity.Customer;
+import com.herbet.ffm.repository.AddressRepository;
+import com.herbet.ffm.repository.CustomerRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {UploadCustomersService.class, AddressCrudService.class, CustomerCrudService.class, AddressRepository.class, CustomerRepository.class, Application.class})
+@TestPropertySource(properties = {"import.upsert.key=lastName,firstName,birthday", "import.batch.size=2"})
+@Transactional
+public class UpsertUploadCustomersServiceTest {
+
+    private static final String HEADER = "Name,Address,Postcode,Phone,Credit Limit,Birthday";
+
+    private static final Charset CP1252 = Charset.forName("Cp1252");
+
+    @Autowired
+    private UploadCustomersService uploadCustomersService;
+
+    @Autowired
+    private CustomerCrudService customerCrudService;
+
+    @Autowired
+    private AddressCrudService addressCrudService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Before
+    public void clearRepositories() {
+        // deleting all objects from db2 before running test
+        customerCrudService.deleteAll();
+        addressCrudService.deleteAll();
+    }
+
+    @Test
+    public void storedCustomerUpdated() throws Exception {
+        // test that customer with the same natural key as stored customer is updated instead of inserted
+
+        uploadCustomersService.uploadCustomersFromFile(csvFile("first.csv",
+                "\"Johnson, John\",Voorstraat 32,3122gg,020 3849381,10000,01/01/1987",
+                "\"Anderson, Paul\",Dorpsplein 3A,4532 AA,030 3458986,109093,03/12/1965",
+                "\"Wicket, Steve\",Mendelssohnstraat 54d,3423 ba,0313-398475,934,03/06/1964"));
+        uploadCustomersService.uploadCustomersFromFile(csvFile("second.csv",
+                "\"Johnson, John\",Voorstraat 32,3122gg,020 3849381,20000,01/01/1987",
+                "\"Johnson, John\",Voorstraat 32,3122gg,020 3849381,10000,01/01/1988",
+                "\"Wicket, Steve\",Driehoog 3zwart,2340 CC,0313-398475,934,03/06/1964"));
+
+        List<Customer> customers = findAllCustomers();
+
+        assertThat(customers).hasSize(4);
+        assertThat(customers.get(0).getCreditLimitCents()).isEqualTo(2000000L);
+        assertThat(customers.get(0).getSource()).isEqualTo("second.csv");
+        assertThat(customers.get(1).getSource()).isEqualTo("first.csv");
+        assertThat(customers.get(2).getAddress().getStreet()).isEqualTo("Driehoog 3zwart");
+        assertThat(customers.get(3).getBirthday().toString()).isEqualTo("1988-01-01");
+    }
+
+    @Test
+    public void repeatedCustomerInsertedOnce() throws Exception {
+        // test that customer repeated in the same file is inserted once with fields of the last line
+
+        uploadCustomersService.uploadCustomersFromFile(csvFile("repeated.csv",
+                "\"Johnson, John\",Voorstraat 32,3122gg,020 3849381,10000,01/01/1987",
+                "\"Johnson, John\",Voorstraat 32,3122gg,020 3849381,20000,01/01/1987",
+                "\"Anderson, Paul\",Dorpsplein 3A,4532 AA,030 3458986,109093,03/12/1965",
+                "\"Johnson, John\",Voorstraat 32,3122gg,020 3849381,30000,01/01/1987"));
+
+        List<Customer> customers = findAllCustomers();
+
+        assertThat(customers).hasSize(2);
+        assertThat(customers.get(0).getCreditLimitCents()).isEqualTo(3000000L);
+    }
+
+    @Test
+    public void storedCustomerMatchedByWholeKey() throws Exception {
+        // test that stored customer is updated only if all fields of key match, not fields of different customers
+
+        uploadCustomersService.uploadCustomersFromFile(csvFile("first.csv",
+                "\"Johnson, John\",Voorstraat 32,3122gg,020 3849381,10000,01/01/1987",
+                "\"Johnson, Jane\",Voorstraat 32,3122gg,020 3849381,10000,01/01/1990"));
+        uploadCustomersService.uploadCustomersFromFile(csvFile("second.csv",
+                "\"Johnson, John\",Voorstraat 32,3122gg,020 3849381,20000,01/01/1990",
+                "\"Johnson, Jane\",Voorstraat 32,3122gg,020 3849381,30000,01/01/1990"));
+
+        List<Customer> customers = findAllCustomers();
+
+        assertThat(customers).hasSize(3);
+        assertThat(customers.get(0).getCreditLimitCents()).isEqualTo(1000000L);
+        assertThat(customers.get(1).getCreditLimitCents()).isEqualTo(3000000L);
+        assertThat(customers.get(2).getCreditLimitCents()).isEqualTo(2000000L);
+    }
+
+    private List<Customer> findAllCustomers() {
+        entityManager.clear();
+        List<Customer> customers = new ArrayList<>();
+        customerCrudService.findAll().forEach(customers::add);
+        customers.sort((c1, c2) -> Long.compare(c1.getId(), c2.getId()));
+        return customers;
+    }
+
+    private static MultipartFile csvFile(String fileName, String... lines) {
+        List<String> content = new ArrayList<>(Arrays.asList(lines));
+        content.add(0, HEADER);
+        return new MockMultipartFile(fileName, fileName, "text/*", String.join("\n", content).getBytes(CP1252));
+    }
+}